@@ -20,82 +20,176 @@ package walkingkooka.net.http.server.browser;
 import elemental2.core.Transferable;
 import elemental2.dom.Event;
 import elemental2.dom.EventListener;
+import elemental2.dom.EventTarget;
+import elemental2.dom.MessageChannel;
 import elemental2.dom.MessageEvent;
 import elemental2.dom.MessagePort;
+import elemental2.promise.Promise;
 import jsinterop.base.Js;
+import jsinterop.base.JsArrayLike;
+import walkingkooka.Cast;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.net.http.HttpStatus;
+import walkingkooka.net.http.HttpStatusCode;
 import walkingkooka.net.http.server.HttpHandler;
-import walkingkooka.net.http.server.HttpRequest;
-import walkingkooka.net.http.server.HttpResponse;
 import walkingkooka.net.http.server.HttpServer;
 import walkingkooka.text.CharSequences;
 import walkingkooka.tree.json.JsonNode;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.function.Predicate;
 
 /**
  * A {@link HttpServer} that accepts messages from a {@link MessagePort}, processing the request and then calls {@link MessagePort#postMessage}
  * back the response. The {@link MessagePort} can be a {@link elemental2.dom.Window} or {@link elemental2.dom.Worker}.
+ * Alternatively within a shared worker, every port from a connect event is served, with each response posted back to
+ * the port that sent the request.
  */
 final class BrowserHttpServer implements HttpServer {
 
     /**
-     * Creates a new {@link BrowserHttpServer}.
+     * Creates a new {@link BrowserHttpServer} with a {@link HttpHandler} that completes the response before returning.
      */
     static BrowserHttpServer with(final HttpHandler httpHandler,
                                   final MessagePort port,
                                   final Predicate<MessageEvent<String>> messageFilter,
-                                  final String postMessageTargetOrigin) {
+                                  final String postMessageTargetOrigin,
+                                  final BrowserHttpServerWireFormat format,
+                                  final BrowserHttpServerOptions options) {
+        return withAsync(
+            BrowserHttpServerHttpHandlerAsyncHttpHandler.with(
+                Objects.requireNonNull(httpHandler, "httpHandler")
+            ),
+            port,
+            messageFilter,
+            postMessageTargetOrigin,
+            format,
+            options
+        );
+    }
+
+    /**
+     * Creates a new {@link BrowserHttpServer} with a {@link BrowserHttpServerAsyncHttpHandler} which may complete the
+     * response some time later.
+     */
+    static BrowserHttpServer withAsync(final BrowserHttpServerAsyncHttpHandler httpHandler,
+                                       final MessagePort port,
+                                       final Predicate<MessageEvent<String>> messageFilter,
+                                       final String postMessageTargetOrigin,
+                                       final BrowserHttpServerWireFormat format,
+                                       final BrowserHttpServerOptions options) {
         return new BrowserHttpServer(
             Objects.requireNonNull(httpHandler, "httpHandler"),
             Objects.requireNonNull(port, "port"),
+            false, // sharedWorker
             Objects.requireNonNull(messageFilter, "messageFilter"),
-            CharSequences.failIfNullOrEmpty(postMessageTargetOrigin, "postMessageTargetOrigin")
+            CharSequences.failIfNullOrEmpty(postMessageTargetOrigin, "postMessageTargetOrigin"),
+            Objects.requireNonNull(format, "format"),
+            Objects.requireNonNull(options, "options")
+        );
+    }
+
+    /**
+     * Creates a new {@link BrowserHttpServer} that serves every port from the connect events fired by the given
+     * {@link EventTarget}, which is typically the global scope of a shared worker.
+     */
+    static BrowserHttpServer sharedWorker(final BrowserHttpServerAsyncHttpHandler httpHandler,
+                                          final EventTarget connectTarget,
+                                          final Predicate<MessageEvent<String>> messageFilter,
+                                          final BrowserHttpServerWireFormat format,
+                                          final BrowserHttpServerOptions options) {
+        return new BrowserHttpServer(
+            Objects.requireNonNull(httpHandler, "httpHandler"),
+            Objects.requireNonNull(connectTarget, "connectTarget"),
+            true, // sharedWorker
+            Objects.requireNonNull(messageFilter, "messageFilter"),
+            "*", // postMessageTargetOrigin is ignored by ports
+            Objects.requireNonNull(format, "format"),
+            Objects.requireNonNull(options, "options")
         );
     }
 
     /**
      * Use factory
      */
-    private BrowserHttpServer(final HttpHandler httpHandler,
-                              final MessagePort port,
+    private BrowserHttpServer(final BrowserHttpServerAsyncHttpHandler httpHandler,
+                              final EventTarget target,
+                              final boolean sharedWorker,
                               final Predicate<MessageEvent<String>> messageFilter,
-                              final String postMessageTargetOrigin) {
+                              final String postMessageTargetOrigin,
+                              final BrowserHttpServerWireFormat format,
+                              final BrowserHttpServerOptions options) {
         super();
         this.httpHandler = httpHandler;
-        this.port = port;
+        this.target = target;
+        this.sharedWorker = sharedWorker;
         this.messageFilter = messageFilter;
         this.postMessageTargetOrigin = postMessageTargetOrigin;
+        this.format = format;
+        this.options = options;
+        this.queue = BrowserHttpServerRequestQueue.with(
+            options.maxQueueDepth(),
+            options.timeSliceMillis(),
+            () -> this.clock.getAsLong(),
+            (task) -> this.scheduler.accept(task)
+        );
     }
 
     // HttpServer.......................................................................................................
 
     /**
-     * Starts the server by adding the message event listener.
+     * Starts the server by adding the message event listener, or the connect event listener for a shared worker.
      */
     @Override
     public void start() {
         if (this.running) {
             throw new IllegalStateException("Server already running");
         }
-        this.port.addEventListener(MESSAGE, this.eventListener, false);
+        if (this.sharedWorker) {
+            this.target.addEventListener(CONNECT, this.connectEventListener, false);
+        } else {
+            this.target.addEventListener(MESSAGE, this.eventListener, false);
+        }
         this.running = true;
     }
 
     /**
-     * Stops the server by removing the message event listener.
+     * Stops the server by removing the message event listener. For a shared worker all connected ports are also closed.
      */
     @Override
     public void stop() {
         if (false == this.running) {
             throw new IllegalStateException("Server not running");
         }
-        this.port.removeEventListener(MESSAGE, this.eventListener);
+        if (this.sharedWorker) {
+            this.target.removeEventListener(CONNECT, this.connectEventListener);
+
+            for (final MessagePort port : this.connectedPorts) {
+                this.removeEventListeners(port);
+                port.close();
+            }
+            this.connectedPorts.clear();
+        } else {
+            this.target.removeEventListener(MESSAGE, this.eventListener);
+        }
         this.running = false;
     }
 
+    private final static String CONNECT = "connect";
     private final static String MESSAGE = "message";
-    private final MessagePort port;
+    private final static String MESSAGE_ERROR = "messageerror";
+    private final static String CLOSE = "close";
+
+    /**
+     * Either the {@link MessagePort} receiving messages or, for a shared worker, the target of connect events.
+     */
+    private final EventTarget target;
+
+    private final boolean sharedWorker;
+
     private final EventListener eventListener = this::handleEvent;
     private boolean running;
 
@@ -103,37 +197,780 @@ final class BrowserHttpServer implements HttpServer {
         this.handleMessageEvent(Js.cast(event));
     }
 
+    private final EventListener connectEventListener = this::handleConnectEvent;
+
+    /**
+     * Each port in a connect event is served until it closes, one of its messages fails or the server is stopped.
+     */
+    private void handleConnectEvent(final Event event) {
+        final MessageEvent<?> messageEvent = Js.cast(event);
+        final JsArrayLike<Object> ports = Js.asArrayLike(messageEvent.ports);
+
+        final int count = ports.getLength();
+        for (int i = 0; i < count; i++) {
+            this.connect(Js.cast(ports.getAt(i)));
+        }
+    }
+
+    /**
+     * Starts serving the port. Browsers that do not fire a close event when the other end of a port goes away never
+     * disconnect it, so once the maximum number of ports are connected the port that least recently sent a message is
+     * disconnected.
+     */
+    // @VisibleForTesting
+    void connect(final MessagePort port) {
+        final List<MessagePort> connectedPorts = this.connectedPorts;
+        if (connectedPorts.size() >= MAX_CONNECTED_PORTS) {
+            this.disconnect(connectedPorts.get(0));
+        }
+
+        port.addEventListener(MESSAGE, this.eventListener, false);
+        port.addEventListener(MESSAGE_ERROR, this.disconnectEventListener, false);
+        port.addEventListener(CLOSE, this.disconnectEventListener, false);
+        port.start();
+        connectedPorts.add(port);
+    }
+
+    private final EventListener disconnectEventListener = this::handleDisconnectEvent;
+
+    private void handleDisconnectEvent(final Event event) {
+        this.disconnect(Js.cast(event.target));
+    }
+
+    /**
+     * Stops serving the port and closes it, aborting any of its requests that may still be aborted, as nobody is left
+     * to receive their responses.
+     */
+    // @VisibleForTesting
+    void disconnect(final MessagePort port) {
+        if (this.connectedPorts.remove(port)) {
+            this.removeEventListeners(port);
+            port.close();
+
+            final List<BrowserHttpServerRequestTask> matches = Lists.array();
+            for (final BrowserHttpServerRequestTask task : this.tasks) {
+                if (task.isClient(port)) {
+                    matches.add(task);
+                }
+            }
+            this.abort(matches);
+        }
+    }
+
+    private void removeEventListeners(final MessagePort port) {
+        port.removeEventListener(MESSAGE, this.eventListener);
+        port.removeEventListener(MESSAGE_ERROR, this.disconnectEventListener);
+        port.removeEventListener(CLOSE, this.disconnectEventListener);
+    }
+
+    /**
+     * All ports connected to a shared worker, the port that least recently connected or sent a message first.
+     */
+    private final List<MessagePort> connectedPorts = Lists.array();
+
+    // @VisibleForTesting
+    final static int MAX_CONNECTED_PORTS = 256;
+
+    /**
+     * Moves a connected port that sent a message to the end of the connected ports, so it is disconnected last.
+     */
+    private void touch(final Object port) {
+        final List<MessagePort> connectedPorts = this.connectedPorts;
+        if (connectedPorts.remove(port)) {
+            connectedPorts.add(Js.cast(port));
+        }
+    }
+
+    /**
+     * The number of ports connected to a shared worker.
+     */
+    // @VisibleForTesting
+    int connectedPortCount() {
+        return this.connectedPorts.size();
+    }
+
     /**
      * Before handling the message as a {@link }HttpRequest} the message filter predicate is used to test the message.
-     * This allows the message.origin to be tested and more.
+     * This allows the message.origin to be tested and more. If the request includes an id it is copied to the response,
+     * allowing clients to have many requests in flight and match responses that arrive out of order. A message holding
+     * an array of requests is handled as a batch, with all the responses posted back in a single array once the last
+     * request completes. A message that cannot be parsed is answered with a bad request response, while a message
+     * larger than the maximum size is rejected before any parsing.
      */
     // @VisibleForTesting
-    void handleMessageEvent(final MessageEvent<String> event) {
-        if (this.messageFilter.test(event)) {
-            // inputs
-            final HttpRequest request = BrowserHttpServerHttpRequest.with(JsonNode.parse(event.data).objectOrFail());
-            final HttpResponse response = BrowserHttpServerHttpResponse.empty();
+    void handleMessageEvent(final MessageEvent<?> event) {
+        if (this.messageFilter.test(Cast.to(event))) {
+            if (this.sharedWorker) {
+                this.touch(event.target);
+            }
+
+            final Object data = event.data;
+
+            final int maxMessageSize = this.options.maxMessageSize();
+            if (maxMessageSize > 0 && null != data && this.format.size(data) > maxMessageSize) {
+                this.postResponse(
+                    event,
+                    error(
+                        BrowserHttpServerHttpResponse.empty(),
+                        PAYLOAD_TOO_LARGE
+                    )
+                );
+            } else {
+                this.handleMessageEvent0(
+                    event,
+                    data
+                );
+            }
+        }
+    }
+
+    private final static HttpStatus PAYLOAD_TOO_LARGE = HttpStatusCode.withCode(413)
+        .setMessage("Payload Too Large");
+
+    /**
+     * Parses the message data into a single request or a batch, and queues them. The queue is drained in a later turn,
+     * so the requests from a burst of messages are run together ordered by their lane. An abort message is acted upon
+     * immediately, without waiting in the queue, and is never answered.
+     */
+    private void handleMessageEvent0(final MessageEvent<?> event,
+                                     final Object data) {
+        final BrowserHttpServerWireFormat format = this.format;
+
+        List<BrowserHttpServerHttpRequest> batch = null;
+        BrowserHttpServerHttpRequest request = null;
+        RuntimeException invalid = null;
+
+        try {
+            if (format.isBatch(data)) {
+                batch = format.batch(data);
+            } else {
+                request = format.request(data);
+            }
+        } catch (final RuntimeException cause) {
+            invalid = cause;
+        }
+
+        final JsonNode abortId = null != request ?
+            request.abortId()
+                .orElse(null) :
+            null;
+
+        if (null != invalid) {
+            this.postResponse(
+                event,
+                badRequest(
+                    BrowserHttpServerHttpResponse.empty()
+                )
+            );
+        } else {
+            if (null != batch) {
+                this.handleBatch(
+                    event,
+                    batch
+                );
+            } else {
+                if (null != abortId) {
+                    this.abort(
+                        destination(event),
+                        abortId
+                    );
+                } else {
+                    final BrowserHttpServerHttpRequest single = request;
+
+                    this.handle(
+                        destination(event),
+                        request,
+                        (response) -> this.postResponse(
+                            event,
+                            single.isAborted() ?
+                                this.setQueueDepth(
+                                    error(
+                                        response,
+                                        CLIENT_CLOSED_REQUEST
+                                    )
+                                ) :
+                                response
+                        )
+                    );
+                    this.queue.scheduleDrain();
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues each request in the batch before running any, so interactive requests run ahead of background requests,
+     * collecting the responses in the same order as the requests. Responses within a batch are never streamed.
+     */
+    private void handleBatch(final MessageEvent<?> event,
+                             final List<BrowserHttpServerHttpRequest> requests) {
+        final int count = requests.size();
+        final BrowserHttpServerHttpResponse[] responses = new BrowserHttpServerHttpResponse[count];
+        final int[] remaining = new int[]{count};
+
+        final Runnable post = () -> {
+            final List<Transferable> transfer = Lists.array();
+            this.postMessage(
+                event,
+                this.format.batchResponse(
+                    Lists.of(responses),
+                    transfer
+                ),
+                transfer
+            );
+        };
+
+        if (0 == count) {
+            post.run();
+        } else {
+            for (int i = 0; i < count; i++) {
+                final int index = i;
+                final BrowserHttpServerHttpRequest request = requests.get(i);
+
+                this.handle(
+                    destination(event),
+                    request,
+                    (response) -> {
+                        responses[index] = request.isAborted() ?
+                            this.setQueueDepth(
+                                error(
+                                    response,
+                                    CLIENT_CLOSED_REQUEST
+                                )
+                            ) :
+                            response;
+                        remaining[0]--;
+                        if (0 == remaining[0]) {
+                            post.run();
+                        }
+                    }
+                );
+            }
+            this.queue.scheduleDrain();
+        }
+    }
+
+    /**
+     * Creates the response copying any request id, and then queues the request in the lane for its priority, ready for
+     * the queue to be drained. A request with too many headers is rejected without calling the handler, as is a request
+     * arriving when the queue is full, which is answered with a service unavailable and a Retry-After header.
+     */
+    private void handle(final Object client,
+                        final BrowserHttpServerHttpRequest request,
+                        final Consumer<BrowserHttpServerHttpResponse> completion) {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+
+        BrowserHttpServerHttpResponse rejected;
+        try {
+            request.id()
+                .ifPresent(response::setId);
+
+            final int maxHeaderCount = this.options.maxHeaderCount();
+            if (maxHeaderCount > 0 && request.headerCount() > maxHeaderCount) {
+                rejected = error(
+                    response,
+                    REQUEST_HEADER_FIELDS_TOO_LARGE
+                );
+            } else {
+                final Runnable handle = () -> this.run(
+                    request,
+                    response,
+                    completion
+                );
 
-            // process
-            this.httpHandler.handle(request, response);
+                // only requests with an id can be aborted
+                final Runnable task = request.id().isPresent() ?
+                    BrowserHttpServerRequestTask.with(
+                        client,
+                        request,
+                        handle,
+                        () -> completion.accept(
+                            this.setQueueDepth(
+                                error(
+                                    response,
+                                    CLIENT_CLOSED_REQUEST
+                                )
+                            )
+                        )
+                    ) :
+                    handle;
 
-            // outputs
-            event.source.postMessage(response.toString(), this.postMessageTargetOrigin);
+                if (this.queue.offer(client, task, request.isBackground())) {
+                    rejected = null;
+                    if (task instanceof BrowserHttpServerRequestTask) {
+                        this.tasks.add((BrowserHttpServerRequestTask) task);
+                    }
+                } else {
+                    rejected = serviceUnavailable(response);
+                }
+            }
+        } catch (final RuntimeException cause) {
+            rejected = badRequest(response);
+        }
+
+        if (null != rejected) {
+            completion.accept(
+                this.setQueueDepth(rejected)
+            );
+        }
+    }
+
+    /**
+     * Calls the handler, giving the response to the completion when the handler completes, which may be after this
+     * method returns. A handler that fails reading an invalid part of the request is answered with a bad request,
+     * while any other failure is answered with an internal server error, whether the handler throws or completes
+     * after recording an asynchronous failure on the response.
+     */
+    private void run(final BrowserHttpServerHttpRequest request,
+                     final BrowserHttpServerHttpResponse response,
+                     final Consumer<BrowserHttpServerHttpResponse> completion) {
+        final boolean[] completed = new boolean[1];
+
+        final Consumer<BrowserHttpServerHttpResponse> complete = (r) -> {
+            if (false == completed[0]) {
+                completed[0] = true;
+                this.queue.complete();
+                this.untrack(request);
+                completion.accept(
+                    this.setQueueDepth(r)
+                );
+            }
+        };
+
+        try {
+            this.httpHandler.handle(
+                request,
+                response,
+                () -> complete.accept(
+                    response.failure()
+                        .map((failure) -> failed(response, failure))
+                        .orElse(response)
+                )
+            );
+        } catch (final RuntimeException cause) {
+            complete.accept(
+                failed(
+                    response,
+                    cause
+                )
+            );
+        }
+    }
+
+    /**
+     * Maps a handler failure to a bad request if it was reading an invalid part of the request, otherwise an internal
+     * server error.
+     */
+    private static BrowserHttpServerHttpResponse failed(final BrowserHttpServerHttpResponse response,
+                                                        final Object failure) {
+        return failure instanceof BrowserHttpServerBadRequestException ?
+            badRequest(response) :
+            error(
+                response,
+                HttpStatusCode.INTERNAL_SERVER_ERROR.status()
+            );
+    }
+
+    /**
+     * Requests waiting for or running in the handler.
+     */
+    private final BrowserHttpServerRequestQueue queue;
+
+    /**
+     * Aborts every request from the client with the given id. A request still waiting is removed from the queue and
+     * completed with a client closed request status without calling the handler, while a running request is only
+     * marked as aborted, leaving its handler to notice and complete early. Either way the request is answered with a
+     * client closed request status, so every request message receives exactly one response.
+     */
+    private void abort(final Object client,
+                       final JsonNode id) {
+        final List<BrowserHttpServerRequestTask> matches = Lists.array();
+        for (final BrowserHttpServerRequestTask task : this.tasks) {
+            if (task.isRequest(client, id)) {
+                matches.add(task);
+            }
+        }
+
+        this.abort(matches);
+    }
+
+    /**
+     * Marks each request as aborted, removing and completing those still waiting in the queue.
+     */
+    private void abort(final List<BrowserHttpServerRequestTask> matches) {
+        for (final BrowserHttpServerRequestTask task : matches) {
+            task.request()
+                .abort();
+
+            if (this.queue.remove(task)) {
+                this.tasks.remove(task);
+                task.drop();
+            }
+        }
+    }
+
+    /**
+     * Forgets the task for a request that has completed.
+     */
+    private void untrack(final BrowserHttpServerHttpRequest request) {
+        final List<BrowserHttpServerRequestTask> tasks = this.tasks;
+        final int count = tasks.size();
+        for (int i = 0; i < count; i++) {
+            if (tasks.get(i).request() == request) {
+                tasks.remove(i);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Requests with an id that are waiting or running, which may be aborted by their client.
+     */
+    private final List<BrowserHttpServerRequestTask> tasks = Lists.array();
+
+    /**
+     * The number of requests with an id that may still be aborted.
+     */
+    // @VisibleForTesting
+    int abortableCount() {
+        return this.tasks.size();
+    }
+
+    private final static HttpStatus CLIENT_CLOSED_REQUEST = HttpStatusCode.withCode(499)
+        .setMessage("Client Closed Request");
+
+    /**
+     * Returns the current time in milliseconds, used to measure each time slice.
+     */
+    // @VisibleForTesting
+    LongSupplier clock = System::currentTimeMillis;
+
+    /**
+     * Runs a task in a later turn, used to resume draining the queue after a time slice is used and to post each chunk
+     * of a streamed body in its own turn.
+     */
+    // @VisibleForTesting
+    Consumer<Runnable> scheduler = this::yieldTurn;
+
+    /**
+     * Runs the task in a later turn by posting a message over a private {@link MessageChannel}. Unlike a zero delay
+     * timeout, messages are not clamped to a minimum delay when yields follow each other.
+     */
+    private void yieldTurn(final Runnable task) {
+        MessageChannel channel = this.yieldChannel;
+        if (null == channel) {
+            channel = new MessageChannel();
+            channel.port1.addEventListener(
+                MESSAGE,
+                (event) -> {
+                    final List<Runnable> yielded = this.yieldedTasks;
+                    if (false == yielded.isEmpty()) {
+                        yielded.remove(0)
+                            .run();
+                    }
+                },
+                false
+            );
+            channel.port1.start();
+            this.yieldChannel = channel;
+        }
+        this.yieldedTasks.add(task);
+        channel.port2.postMessage(null);
+    }
+
+    /**
+     * The channel used to yield, created when first needed.
+     */
+    private MessageChannel yieldChannel;
+
+    /**
+     * The tasks waiting for their yield message, in the order they were yielded, one message is posted per task.
+     */
+    private final List<Runnable> yieldedTasks = Lists.array();
+
+    /**
+     * The number of requests waiting or running that have not yet completed.
+     */
+    // @VisibleForTesting
+    int queueDepth() {
+        return this.queue.depth();
+    }
+
+    /**
+     * When the queue is bounded every response includes the current queue depth, so clients can back off before
+     * requests are refused.
+     */
+    private BrowserHttpServerHttpResponse setQueueDepth(final BrowserHttpServerHttpResponse response) {
+        if (this.options.maxQueueDepth() > 0) {
+            response.setQueueDepth(this.queue.depth());
+        }
+        return response;
+    }
+
+    /**
+     * Creates a service unavailable response, asking the client to retry after a short delay.
+     */
+    private static BrowserHttpServerHttpResponse serviceUnavailable(final BrowserHttpServerHttpResponse response) {
+        final BrowserHttpServerHttpResponse unavailable = error(
+            response,
+            SERVICE_UNAVAILABLE
+        );
+        unavailable.addHeader(
+            RETRY_AFTER,
+            RETRY_AFTER_SECONDS
+        );
+        return unavailable;
+    }
+
+    private final static HttpStatus SERVICE_UNAVAILABLE = HttpStatusCode.withCode(503)
+        .setMessage("Service Unavailable");
+
+    private final static String RETRY_AFTER = "Retry-After";
+
+    private final static Long RETRY_AFTER_SECONDS = 1L;
+
+    private final static HttpStatus REQUEST_HEADER_FIELDS_TOO_LARGE = HttpStatusCode.withCode(431)
+        .setMessage("Request Header Fields Too Large");
+
+    /**
+     * Creates a bad request response with the standard status message. The message of the cause is never sent, as it
+     * may echo client input or internal details.
+     */
+    private static BrowserHttpServerHttpResponse badRequest(final BrowserHttpServerHttpResponse response) {
+        return error(
+            response,
+            HttpStatusCode.BAD_REQUEST.status()
+        );
+    }
+
+    /**
+     * Creates a new response with the id from the given response and the status, discarding anything else the handler
+     * may have set.
+     */
+    private static BrowserHttpServerHttpResponse error(final BrowserHttpServerHttpResponse response,
+                                                       final HttpStatus status) {
+        final BrowserHttpServerHttpResponse error = BrowserHttpServerHttpResponse.empty();
+        response.id()
+            .ifPresent(error::setId);
+        error.setStatus(status);
+        return error;
+    }
+
+    /**
+     * Posts the response back to the client. If streaming is enabled and the body is larger than a chunk, the response
+     * without its body is posted first along with one end of a new {@link MessageChannel}, and then the body is posted
+     * in chunks over the other end of the channel, one chunk per turn.
+     */
+    private void postResponse(final MessageEvent<?> event,
+                              final BrowserHttpServerHttpResponse response) {
+        final int chunkSize = this.options.streamingChunkSize();
+
+        final byte[] binaryBody = chunkSize > 0 && this.format.isBinarySupported() ?
+            response.binaryBody()
+                .orElse(null) :
+            null;
+        final String bodyText = chunkSize > 0 && null == binaryBody ?
+            response.bodyText() :
+            "";
+
+        final List<Transferable> transfer = Lists.array();
+
+        if (null != binaryBody ? binaryBody.length > chunkSize : bodyText.length() > chunkSize) {
+            final MessageChannel channel = new MessageChannel();
+
+            final Object head = this.format.response(
+                response.withoutBody(),
+                transfer
+            );
+            transfer.add(channel.port2);
+            this.postMessage(
+                event,
+                head,
+                transfer
+            );
+
+            if (null != binaryBody) {
+                BrowserHttpServerBodyStreamer.binary(
+                    binaryBody,
+                    chunkSize,
+                    channel.port1,
+                    this.scheduler
+                );
+            } else {
+                BrowserHttpServerBodyStreamer.text(
+                    bodyText,
+                    chunkSize,
+                    channel.port1,
+                    this.scheduler
+                );
+            }
+        } else {
+            if (this.options.coalesceResponses()) {
+                this.coalesce(
+                    event,
+                    response
+                );
+            } else {
+                this.postMessage(
+                    event,
+                    this.format.response(
+                        response,
+                        transfer
+                    ),
+                    transfer
+                );
+            }
+        }
+    }
+
+    /**
+     * Holds the response until a microtask runs, along with any other responses completed in the same turn.
+     */
+    private void coalesce(final MessageEvent<?> event,
+                          final BrowserHttpServerHttpResponse response) {
+        final boolean flushScheduled = false == this.coalescedEvents.isEmpty();
+
+        this.coalescedEvents.add(event);
+        this.coalescedResponses.add(response);
+
+        if (false == flushScheduled) {
+            this.microtasks.accept(this::flushCoalesced);
+        }
+    }
+
+    /**
+     * Posts all held responses, one message for each client. A lone response is posted as is, while several are
+     * posted as a coalesced message holding them in the order they completed.
+     */
+    private void flushCoalesced() {
+        final List<MessageEvent<?>> events = Lists.array();
+        events.addAll(this.coalescedEvents);
+        this.coalescedEvents.clear();
+
+        final List<BrowserHttpServerHttpResponse> responses = Lists.array();
+        responses.addAll(this.coalescedResponses);
+        this.coalescedResponses.clear();
+
+        final int count = events.size();
+        final boolean[] posted = new boolean[count];
+
+        for (int i = 0; i < count; i++) {
+            if (posted[i]) {
+                continue;
+            }
+
+            final MessageEvent<?> event = events.get(i);
+            final Object destination = destination(event);
+
+            final List<BrowserHttpServerHttpResponse> same = Lists.array();
+            for (int j = i; j < count; j++) {
+                if (false == posted[j] && destination == destination(events.get(j))) {
+                    same.add(responses.get(j));
+                    posted[j] = true;
+                }
+            }
+
+            final List<Transferable> transfer = Lists.array();
+            this.postMessage(
+                event,
+                1 == same.size() ?
+                    this.format.response(
+                        same.get(0),
+                        transfer
+                    ) :
+                    this.format.coalescedResponse(
+                        same,
+                        transfer
+                    ),
+                transfer
+            );
+        }
+    }
+
+    /**
+     * The client that will receive the response for the given event.
+     */
+    private static Object destination(final MessageEvent<?> event) {
+        return null != event.source ?
+            event.source :
+            event.target;
+    }
+
+    /**
+     * The events and responses waiting to be posted when coalescing is enabled.
+     */
+    private final List<MessageEvent<?>> coalescedEvents = Lists.array();
+
+    private final List<BrowserHttpServerHttpResponse> coalescedResponses = Lists.array();
+
+    /**
+     * Runs a task in a microtask after the current one completes.
+     */
+    // @VisibleForTesting
+    Consumer<Runnable> microtasks = BrowserHttpServer::queueMicrotask;
+
+    private static void queueMicrotask(final Runnable task) {
+        Promise.resolve((Object) null)
+            .then(
+                (value) -> {
+                    task.run();
+                    return null;
+                }
+            );
+    }
+
+    /**
+     * Posts the message back to the event source, typically a {@link elemental2.dom.Window}. Messages that arrive on a
+     * port or within a worker have no source, and are answered by posting to the event target.
+     */
+    private void postMessage(final MessageEvent<?> event,
+                             final Object message,
+                             final List<Transferable> transfer) {
+        if (null != event.source) {
+            if (transfer.isEmpty()) {
+                event.source.postMessage(
+                    message,
+                    this.postMessageTargetOrigin
+                );
+            } else {
+                event.source.postMessage(
+                    message,
+                    this.postMessageTargetOrigin,
+                    transfer.toArray(new Transferable[0])
+                );
+            }
+        } else {
+            final MessagePort port = Js.uncheckedCast(event.target);
+            if (transfer.isEmpty()) {
+                port.postMessage(message);
+            } else {
+                port.postMessage(
+                    message,
+                    transfer.toArray(new Transferable[0])
+                );
+            }
         }
     }
 
     private final Predicate<MessageEvent<String>> messageFilter;
 
     /**
-     * Handles the request and produces a response.
+     * Handles the request and produces a response, possibly completing some time later.
      */
-    private final HttpHandler httpHandler;
+    private final BrowserHttpServerAsyncHttpHandler httpHandler;
 
     /**
      * The {@link MessagePort#postMessage(Object, Transferable[])}
      */
     private final String postMessageTargetOrigin;
 
+    /**
+     * The format of the response message posted back.
+     */
+    private final BrowserHttpServerWireFormat format;
+
+    private final BrowserHttpServerOptions options;
+
     @Override
     public String toString() {
         return this.httpHandler.toString();
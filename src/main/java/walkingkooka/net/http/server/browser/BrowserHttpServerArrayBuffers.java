@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import elemental2.core.ArrayBuffer;
+import elemental2.core.ArrayBufferView;
+import elemental2.core.Uint8Array;
+import jsinterop.base.Js;
+
+/**
+ * Helpers that convert between binary javascript values such as {@link ArrayBuffer} and {@link Uint8Array} and java
+ * byte arrays. This is only usable within a browser.
+ */
+final class BrowserHttpServerArrayBuffers {
+
+    /**
+     * Tests if the value is an {@link ArrayBuffer} or a view such as {@link Uint8Array}.
+     */
+    static boolean isBinary(final Object value) {
+        return value instanceof ArrayBuffer || ArrayBuffer.isView(value);
+    }
+
+    /**
+     * Returns the number of bytes in an {@link ArrayBuffer} or a view such as {@link Uint8Array}.
+     */
+    static long byteLength(final Object value) {
+        final double byteLength;
+
+        if (value instanceof ArrayBuffer) {
+            byteLength = ((ArrayBuffer) value).byteLength;
+        } else {
+            final ArrayBufferView view = Js.cast(value);
+            byteLength = view.byteLength;
+        }
+
+        return (long) byteLength;
+    }
+
+    /**
+     * Copies the bytes from an {@link ArrayBuffer} or a view such as {@link Uint8Array} into a byte array.
+     */
+    static byte[] bytes(final Object value) {
+        final Uint8Array uint8;
+
+        if (value instanceof ArrayBuffer) {
+            uint8 = new Uint8Array((ArrayBuffer) value);
+        } else {
+            final ArrayBufferView view = Js.cast(value);
+            uint8 = new Uint8Array(
+                view.buffer,
+                view.byteOffset,
+                view.byteLength
+            );
+        }
+
+        final int length = uint8.length;
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) uint8.getAt(i).intValue();
+        }
+        return bytes;
+    }
+
+    /**
+     * Copies the bytes into a new {@link ArrayBuffer} which may then be transferred without a further copy by
+     * <code>postMessage</code>.
+     */
+    static ArrayBuffer arrayBuffer(final byte[] bytes) {
+        return arrayBuffer(
+            bytes,
+            0,
+            bytes.length
+        );
+    }
+
+    /**
+     * Copies the bytes between start and end into a new {@link ArrayBuffer}.
+     */
+    static ArrayBuffer arrayBuffer(final byte[] bytes,
+                                   final int start,
+                                   final int end) {
+        final int length = end - start;
+        final Uint8Array uint8 = new Uint8Array(length);
+        for (int i = 0; i < length; i++) {
+            uint8.setAt(i, (double) (bytes[start + i] & 0xff));
+        }
+        return uint8.buffer;
+    }
+
+    /**
+     * Stop creation
+     */
+    private BrowserHttpServerArrayBuffers() {
+        throw new UnsupportedOperationException();
+    }
+}
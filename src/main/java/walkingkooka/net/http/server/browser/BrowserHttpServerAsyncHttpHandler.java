@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import walkingkooka.net.http.server.HttpRequest;
+import walkingkooka.net.http.server.HttpResponse;
+
+/**
+ * A handler that may complete the response some time after {@link #handle(HttpRequest, HttpResponse, Runnable)}
+ * returns, for example after waiting on IndexedDB, fetch or a timer. The server posts the response only after the
+ * completion is run, leaving the worker free to handle other messages while waiting.
+ */
+interface BrowserHttpServerAsyncHttpHandler {
+
+    /**
+     * Handles the request, filling the response, and then runs the completion exactly once.
+     */
+    void handle(final HttpRequest request,
+                final HttpResponse response,
+                final Runnable completion);
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+/**
+ * Thrown when a part of the request such as the url or a header value is invalid, resulting in a bad request response.
+ * The exception only marks the cause as a bad request, neither its message nor the message of the cause is sent to
+ * the client. The stack trace is never filled, avoiding the cost of a second stack trace on top of the cause's.
+ */
+final class BrowserHttpServerBadRequestException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Wraps the cause, keeping its message.
+     */
+    static BrowserHttpServerBadRequestException with(final RuntimeException cause) {
+        return new BrowserHttpServerBadRequestException(
+            cause.getMessage(),
+            cause
+        );
+    }
+
+    private BrowserHttpServerBadRequestException(final String message,
+                                                 final Throwable cause) {
+        super(
+            message,
+            cause,
+            false, // enableSuppression
+            false // writableStackTrace
+        );
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import elemental2.core.ArrayBuffer;
+import elemental2.core.Transferable;
+import elemental2.dom.MessagePort;
+
+import java.util.function.Consumer;
+
+/**
+ * Posts a response body in chunks over a {@link MessagePort}, typically one end of a per request
+ * {@link elemental2.dom.MessageChannel}. Each chunk is either a string or an {@link ArrayBuffer}, and the end of the
+ * body is marked by posting a null, after which the port is closed. Only one chunk is posted per turn, the next chunk
+ * is posted by a task given to the scheduler, so the client receives and may release earlier chunks and other
+ * messages are handled between chunks. The whole body is still held until its last chunk is posted.
+ */
+final class BrowserHttpServerBodyStreamer {
+
+    /**
+     * Posts the text in chunks of at most chunkSize characters, never splitting a surrogate pair.
+     */
+    static void text(final String text,
+                     final int chunkSize,
+                     final MessagePort port,
+                     final Consumer<Runnable> scheduler) {
+        final int length = text.length();
+
+        if (length > 0) {
+            textChunk(
+                text,
+                0,
+                chunkSize,
+                port,
+                scheduler
+            );
+        } else {
+            end(port);
+        }
+    }
+
+    private static void textChunk(final String text,
+                                  final int start,
+                                  final int chunkSize,
+                                  final MessagePort port,
+                                  final Consumer<Runnable> scheduler) {
+        final int length = text.length();
+
+        int end = Math.min(length, start + chunkSize);
+        if (end < length && end - 1 > start && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        port.postMessage(text.substring(start, end));
+
+        if (end < length) {
+            final int next = end;
+            scheduler.accept(
+                () -> textChunk(
+                    text,
+                    next,
+                    chunkSize,
+                    port,
+                    scheduler
+                )
+            );
+        } else {
+            end(port);
+        }
+    }
+
+    /**
+     * Posts the bytes in chunks of at most chunkSize bytes, each chunk is an {@link ArrayBuffer} that is transferred.
+     */
+    static void binary(final byte[] bytes,
+                       final int chunkSize,
+                       final MessagePort port,
+                       final Consumer<Runnable> scheduler) {
+        if (bytes.length > 0) {
+            binaryChunk(
+                bytes,
+                0,
+                chunkSize,
+                port,
+                scheduler
+            );
+        } else {
+            end(port);
+        }
+    }
+
+    private static void binaryChunk(final byte[] bytes,
+                                    final int start,
+                                    final int chunkSize,
+                                    final MessagePort port,
+                                    final Consumer<Runnable> scheduler) {
+        final int length = bytes.length;
+        final int end = Math.min(length, start + chunkSize);
+
+        final ArrayBuffer buffer = BrowserHttpServerArrayBuffers.arrayBuffer(
+            bytes,
+            start,
+            end
+        );
+        port.postMessage(
+            buffer,
+            new Transferable[]{buffer}
+        );
+
+        if (end < length) {
+            scheduler.accept(
+                () -> binaryChunk(
+                    bytes,
+                    end,
+                    chunkSize,
+                    port,
+                    scheduler
+                )
+            );
+        } else {
+            end(port);
+        }
+    }
+
+    private static void end(final MessagePort port) {
+        port.postMessage(null);
+        port.close();
+    }
+
+    /**
+     * Stop creation
+     */
+    private BrowserHttpServerBodyStreamer() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import walkingkooka.net.http.server.HttpHandler;
+import walkingkooka.net.http.server.HttpRequest;
+import walkingkooka.net.http.server.HttpResponse;
+
+import java.util.Objects;
+
+/**
+ * Adapts a synchronous {@link HttpHandler} to a {@link BrowserHttpServerAsyncHttpHandler}, running the completion
+ * as soon as the {@link HttpHandler} returns.
+ */
+final class BrowserHttpServerHttpHandlerAsyncHttpHandler implements BrowserHttpServerAsyncHttpHandler {
+
+    static BrowserHttpServerHttpHandlerAsyncHttpHandler with(final HttpHandler handler) {
+        return new BrowserHttpServerHttpHandlerAsyncHttpHandler(
+            Objects.requireNonNull(handler, "handler")
+        );
+    }
+
+    private BrowserHttpServerHttpHandlerAsyncHttpHandler(final HttpHandler handler) {
+        super();
+        this.handler = handler;
+    }
+
+    @Override
+    public void handle(final HttpRequest request,
+                       final HttpResponse response,
+                       final Runnable completion) {
+        this.handler.handle(request, response);
+        completion.run();
+    }
+
+    private final HttpHandler handler;
+
+    @Override
+    public String toString() {
+        return this.handler.toString();
+    }
+}
@@ -17,9 +17,14 @@
 
 package walkingkooka.net.http.server.browser;
 
+import elemental2.core.Global;
+import elemental2.dom.AbortController;
+import elemental2.dom.AbortSignal;
+import walkingkooka.Cast;
 import walkingkooka.collect.list.Lists;
 import walkingkooka.net.RelativeUrl;
 import walkingkooka.net.Url;
+import walkingkooka.net.UrlQueryString;
 import walkingkooka.net.header.HttpHeaderName;
 import walkingkooka.net.http.HttpEntity;
 import walkingkooka.net.http.HttpMethod;
@@ -28,19 +33,25 @@ import walkingkooka.net.http.HttpTransport;
 import walkingkooka.net.http.server.HttpRequest;
 import walkingkooka.net.http.server.HttpRequestParameterName;
 import walkingkooka.tree.json.JsonNode;
-import walkingkooka.tree.json.JsonObject;
-import walkingkooka.tree.json.JsonPropertyName;
-import walkingkooka.tree.json.JsonString;
 
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
- * A {@link HttpRequest} sourced from json. Some limitations exist, including headers can only have a single value,
- * and only the body text and not binary body is supported.
+ * Base {@link HttpRequest} for requests sourced from a JSON message. Sub classes provide access to the raw properties
+ * while this class handles parsing them into the walkingkooka types. A header with several values holds an array of
+ * values. A binary body is only possible when the request is a javascript object holding an
+ * <code>ArrayBuffer</code> or <code>Uint8Array</code> body. Failures parsing any part of the request are reported by
+ * throwing a {@link BrowserHttpServerBadRequestException}. The optional priority of "interactive" or "background"
+ * selects the lane the request waits in. A message with an "abort" property holding the id of an earlier request is
+ * an abort message rather than a request.
  * <pre>
  * {
+ *    "id": 123,
+ *    "priority": "background",
  *    "method": "GET",
  *    "url": "/path/to/something",
  *    "version: "HTTP/1.0",
@@ -52,95 +63,458 @@ import java.util.Objects;
  * }
  * </pre>
  */
-final class BrowserHttpServerHttpRequest implements HttpRequest {
+abstract class BrowserHttpServerHttpRequest implements HttpRequest {
 
-    static BrowserHttpServerHttpRequest with(final JsonObject json) {
-        Objects.requireNonNull(json, "json");
-        return new BrowserHttpServerHttpRequest(json);
+    /**
+     * Parses the JSON text into a {@link BrowserHttpServerHttpRequest}. When running in a browser the native
+     * <code>JSON.parse</code> is used, avoiding building a {@link JsonNode} tree, while a JVM uses {@link JsonNode#parse(String)}.
+     */
+    static BrowserHttpServerHttpRequest parse(final String text) {
+        Objects.requireNonNull(text, "text");
+
+        return NATIVE_JSON ?
+            BrowserHttpServerNativeHttpRequest.with(Global.JSON.parse(text)) :
+            BrowserHttpServerJsonHttpRequest.with(JsonNode.parse(text).objectOrFail());
     }
 
-    private BrowserHttpServerHttpRequest(final JsonObject json) {
+    /**
+     * Tests if the JSON text holds an array of requests, checking only the first character that is not whitespace.
+     */
+    static boolean isBatch(final String text) {
+        final int length = text.length();
+
+        boolean batch = false;
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (false == Character.isWhitespace(c)) {
+                batch = '[' == c;
+                break;
+            }
+        }
+
+        return batch;
+    }
+
+    /**
+     * Parses JSON text holding an array of requests, with the same choice of native or {@link JsonNode} parsing as
+     * {@link #parse(String)}.
+     */
+    static List<BrowserHttpServerHttpRequest> parseBatch(final String text) {
+        Objects.requireNonNull(text, "text");
+
+        final List<BrowserHttpServerHttpRequest> requests;
+
+        if (NATIVE_JSON) {
+            requests = BrowserHttpServerNativeHttpRequest.batch(Global.JSON.parse(text));
+        } else {
+            final JsonNode array = JsonNode.parse(text);
+            if (false == array.isArray()) {
+                throw new IllegalArgumentException("Expected array of requests but got " + array);
+            }
+
+            requests = Lists.array();
+            for (final JsonNode request : array.children()) {
+                requests.add(
+                    BrowserHttpServerJsonHttpRequest.with(request.objectOrFail())
+                );
+            }
+        }
+
+        return requests;
+    }
+
+    /**
+     * Within a JVM the static fields of native types such as {@link Global} are never set.
+     */
+    private final static boolean NATIVE_JSON = null != Global.JSON;
+
+    /**
+     * Package private to limit sub classing.
+     */
+    BrowserHttpServerHttpRequest() {
         super();
-        this.json = json;
     }
 
+    /**
+     * The optional request id, which is echoed back in the response allowing clients to have many requests in flight
+     * and match responses that may arrive out of order.
+     */
+    abstract Optional<JsonNode> id();
+
+    /**
+     * The id of the request to abort, present only when this message is an abort message rather than a request.
+     */
+    abstract Optional<JsonNode> abortId();
+
+    /**
+     * Records that the client has abandoned this request, aborting any {@link AbortSignal} already given to the
+     * handler.
+     */
+    final void abort() {
+        if (false == this.aborted) {
+            this.aborted = true;
+
+            final AbortController abortController = this.abortController;
+            if (null != abortController) {
+                abortController.abort();
+            }
+        }
+    }
+
+    /**
+     * Tests if the client has abandoned this request, handlers may poll this to stop work early.
+     */
+    final boolean isAborted() {
+        return this.aborted;
+    }
+
+    private boolean aborted;
+
+    /**
+     * Returns an {@link AbortSignal} that is aborted when the client abandons this request, suitable for passing to
+     * fetch. The controller is created only when first asked for.
+     */
+    final AbortSignal abortSignal() {
+        AbortController abortController = this.abortController;
+        if (null == abortController) {
+            abortController = new AbortController();
+            if (this.aborted) {
+                abortController.abort();
+            }
+            this.abortController = abortController;
+        }
+        return abortController.signal;
+    }
+
+    private AbortController abortController;
+
+    /**
+     * Tests if the request should wait in the background lane, because its "priority" property is "background" or,
+     * without that property, its Priority header has an urgency lower than the default. Any other priority is
+     * interactive.
+     */
+    final boolean isBackground() {
+        final String priority = this.priorityText()
+            .orElse(null);
+
+        final boolean background;
+        if (null != priority) {
+            background = BACKGROUND.equalsIgnoreCase(priority);
+        } else {
+            this.headers();
+            background = isBackgroundUrgency(
+                this.headers.firstText(PRIORITY_HEADER)
+                    .orElse(null)
+            );
+        }
+        return background;
+    }
+
+    private final static String BACKGROUND = "background";
+
+    private final static String PRIORITY_HEADER = "Priority";
+
+    /**
+     * Tests if the Priority header text has an urgency parameter of 4 to 7, urgencies range from 0 (highest) to
+     * 7 (lowest) with 3 being the default, as described in RFC 9218. Invalid urgencies are ignored, and the last
+     * urgency wins.
+     */
+    // @VisibleForTesting
+    static boolean isBackgroundUrgency(final String priority) {
+        boolean background = false;
+
+        if (null != priority) {
+            for (final String parameter : priority.split(",")) {
+                final String trimmed = parameter.trim();
+                if (trimmed.startsWith("u=")) {
+                    final String urgency = trimmed.substring(2)
+                        .trim();
+                    if (1 == urgency.length()) {
+                        final char c = urgency.charAt(0);
+                        if (c >= '0' && c <= '7') {
+                            background = c > '3';
+                        }
+                    }
+                }
+            }
+        }
+
+        return background;
+    }
+
+    /**
+     * The raw priority property if present.
+     */
+    abstract Optional<String> priorityText();
+
     @Override
-    public HttpTransport transport() {
+    public final HttpTransport transport() {
         return HttpTransport.UNSECURED;
     }
 
+    /**
+     * The version is parsed once, with the common versions returning a shared constant.
+     */
     @Override
-    public HttpProtocolVersion protocolVersion() {
-        return HttpProtocolVersion.with(this.json.get(VERSION).orElse(HTTP10).stringOrFail());
+    public final HttpProtocolVersion protocolVersion() {
+        if (null == this.protocolVersion) {
+            try {
+                this.protocolVersion = protocolVersion(
+                    this.versionText()
+                        .orElse(null)
+                );
+            } catch (final RuntimeException cause) {
+                throw BrowserHttpServerBadRequestException.with(cause);
+            }
+        }
+        return this.protocolVersion;
+    }
+
+    private HttpProtocolVersion protocolVersion;
+
+    // @VisibleForTesting
+    static HttpProtocolVersion protocolVersion(final String text) {
+        HttpProtocolVersion version = null;
+
+        if (null == text) {
+            version = HttpProtocolVersion.VERSION_1_0;
+        } else {
+            for (final HttpProtocolVersion possible : VERSIONS) {
+                if (possible.value().equals(text)) {
+                    version = possible;
+                    break;
+                }
+            }
+            if (null == version) {
+                version = HttpProtocolVersion.with(text);
+            }
+        }
+
+        return version;
     }
 
-    private final static JsonPropertyName VERSION = JsonPropertyName.with("version");
-    private final static JsonString HTTP10 = JsonNode.string(HttpProtocolVersion.VERSION_1_0.value());
+    private final static HttpProtocolVersion[] VERSIONS = new HttpProtocolVersion[]{
+        HttpProtocolVersion.VERSION_1_0,
+        HttpProtocolVersion.VERSION_1_1
+    };
 
+    /**
+     * The raw version text if present.
+     */
+    abstract Optional<String> versionText();
+
+    /**
+     * The url is parsed once and then reused, routing often calls this many times for each request.
+     */
     @Override
-    public RelativeUrl url() {
-        return Url.parseRelative(this.json.getOrFail(URL).stringOrFail());
+    public final RelativeUrl url() {
+        if (null == this.url) {
+            try {
+                this.url = Url.parseRelative(this.urlText());
+            } catch (final RuntimeException cause) {
+                throw BrowserHttpServerBadRequestException.with(cause);
+            }
+        }
+        return this.url;
     }
 
-    private final static JsonPropertyName URL = JsonPropertyName.with("url");
+    private RelativeUrl url;
 
+    /**
+     * The raw url text, which is required.
+     */
+    abstract String urlText();
+
+    /**
+     * The method is parsed once, with the common methods returning a shared constant.
+     */
     @Override
-    public HttpMethod method() {
-        return HttpMethod.with(this.json.get(METHOD).orElse(GET).stringOrFail());
+    public final HttpMethod method() {
+        if (null == this.method) {
+            try {
+                this.method = method(
+                    this.methodText()
+                        .orElse(null)
+                );
+            } catch (final RuntimeException cause) {
+                throw BrowserHttpServerBadRequestException.with(cause);
+            }
+        }
+        return this.method;
+    }
+
+    private HttpMethod method;
+
+    // @VisibleForTesting
+    static HttpMethod method(final String text) {
+        HttpMethod method = null;
+
+        if (null == text) {
+            method = HttpMethod.GET;
+        } else {
+            for (final HttpMethod possible : METHODS) {
+                if (possible.value().equals(text)) {
+                    method = possible;
+                    break;
+                }
+            }
+            if (null == method) {
+                method = HttpMethod.with(text);
+            }
+        }
+
+        return method;
     }
 
-    private final JsonPropertyName METHOD = JsonPropertyName.with("method");
-    private final JsonString GET = JsonNode.string(HttpMethod.GET.value());
+    private final static HttpMethod[] METHODS = new HttpMethod[]{
+        HttpMethod.GET,
+        HttpMethod.POST,
+        HttpMethod.PUT,
+        HttpMethod.DELETE,
+        HttpMethod.HEAD,
+        HttpMethod.OPTIONS
+    };
+
+    /**
+     * The raw method text if present.
+     */
+    abstract Optional<String> methodText();
 
     @Override
-    public Map<HttpHeaderName<?>, List<?>> headers() {
+    public final Map<HttpHeaderName<?>, List<?>> headers() {
         if (null == this.headers) {
-            this.headers = BrowserHttpServerHttpRequestHeadersMap.with(this.json.get(HEADERS)
-                .orElse(JsonNode.object())
-                .objectOrFail());
+            this.headers = this.createHeaders();
         }
         return this.headers;
     }
 
-    private final static JsonPropertyName HEADERS = JsonPropertyName.with("headers");
+    /**
+     * Counts the header values without creating the headers map, a header with an array of values counts each value.
+     */
+    abstract int headerCount();
+
+    /**
+     * Factory that creates the headers map, only called once.
+     */
+    abstract BrowserHttpServerHttpRequestHeadersMap createHeaders();
+
     private BrowserHttpServerHttpRequestHeadersMap headers;
 
     /**
-     * Getting the body as bytes is not supported and throws {@link UnsupportedOperationException}.
+     * By default the body bytes are the body text encoded using the charset from the content-type.
      */
     @Override
     public byte[] body() {
-        throw new UnsupportedOperationException();
+        return this.bodyText().getBytes(this.bodyCharset());
     }
 
+    /**
+     * The length is computed once without encoding the body.
+     */
     @Override
-    public long bodyLength() {
-        return this.bodyText().getBytes(this.charset(HttpEntity.DEFAULT_BODY_CHARSET)).length;
+    public final long bodyLength() {
+        if (this.bodyLength < 0) {
+            this.bodyLength = this.computeBodyLength();
+        }
+        return this.bodyLength;
     }
 
-    @Override
-    public String bodyText() {
-        return this.json.get(BODY)
-            .map(JsonNode::stringOrFail)
-            .orElse("");
+    /**
+     * Cached {@link #bodyLength()}, negative until computed.
+     */
+    private long bodyLength = -1;
+
+    /**
+     * The UTF-8 length is counted by scanning the body text, a Content-Length sent by the client is never trusted.
+     * Other charsets fall back to encoding the text.
+     */
+    long computeBodyLength() {
+        return UTF8.equals(this.bodyCharset().name()) ?
+            utf8Length(this.bodyText()) :
+            this.body().length;
     }
 
-    private final static JsonPropertyName BODY = JsonPropertyName.with("body");
+    private final static String UTF8 = "UTF-8";
 
-    @Override
-    public Map<HttpRequestParameterName, List<String>> parameters() {
-        throw new UnsupportedOperationException();
+    /**
+     * Counts the bytes needed to encode the text as UTF-8 without creating them. A surrogate without its pair is
+     * counted as the single byte replacement that {@link String#getBytes(Charset)} would produce.
+     */
+    // @VisibleForTesting
+    static long utf8Length(final CharSequence text) {
+        final int count = text.length();
+        long length = 0;
+
+        for (int i = 0; i < count; i++) {
+            final char c = text.charAt(i);
+
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else {
+                    length++;
+                }
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    final Charset bodyCharset() {
+        return this.charset(HttpEntity.DEFAULT_BODY_CHARSET);
     }
 
+    /**
+     * The parameters from the query string followed by those from an <code>application/x-www-form-urlencoded</code>
+     * body, decoded on first access and then reused.
+     */
     @Override
-    public List<String> parameterValues(final HttpRequestParameterName parameterName) {
-        return this.parameters().getOrDefault(parameterName, Lists.empty());
+    public final Map<HttpRequestParameterName, List<String>> parameters() {
+        if (null == this.parameters) {
+            final UrlQueryString query = this.url()
+                .query();
+
+            try {
+                this.parameters = this.isFormBody() ?
+                    BrowserHttpServerHttpRequestParametersMap.with(
+                        query,
+                        UrlQueryString.parse(this.bodyText())
+                    ) :
+                    BrowserHttpServerHttpRequestParametersMap.with(query);
+            } catch (final BrowserHttpServerBadRequestException cause) {
+                throw cause;
+            } catch (final RuntimeException cause) {
+                throw BrowserHttpServerBadRequestException.with(cause);
+            }
+        }
+        return this.parameters;
+    }
+
+    private BrowserHttpServerHttpRequestParametersMap parameters;
+
+    private boolean isFormBody() {
+        final List<?> contentTypes = this.headers()
+            .get(HttpHeaderName.CONTENT_TYPE);
+        return false == contentTypes.isEmpty() &&
+            HttpHeaderName.CONTENT_TYPE.headerText(Cast.to(contentTypes.get(0)))
+                .toLowerCase()
+                .startsWith(FORM_URLENCODED);
     }
 
-    private final JsonObject json;
+    private final static String FORM_URLENCODED = "application/x-www-form-urlencoded";
 
     @Override
-    public String toString() {
-        return this.json.toString();
+    public final List<String> parameterValues(final HttpRequestParameterName parameterName) {
+        return this.parameters().getOrDefault(parameterName, Lists.empty());
     }
+
+    @Override
+    public abstract String toString();
 }
@@ -18,41 +18,110 @@
 package walkingkooka.net.http.server.browser;
 
 import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.collect.set.Sets;
 import walkingkooka.net.header.HttpHeaderName;
+import walkingkooka.tree.json.JsonNode;
 import walkingkooka.tree.json.JsonObject;
 
 import java.util.AbstractMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
  * Provides the {@link Map} view of headers. The get and contains methods support case insensitive access honouring {@link HttpHeaderName}.
+ * The header names and their values, text or whole numbers, are held in two parallel arrays, independent of the source
+ * of the request.
+ * A header with several values appears once for each value, and names that differ only by case are also treated as the
+ * same header. The grouping of names ignoring case and the parsed values of each header are created on demand and then
+ * reused, so repeated lookups of the same header are cheap.
  */
 final class BrowserHttpServerHttpRequestHeadersMap extends AbstractMap<HttpHeaderName<?>, List<?>> {
 
+    /**
+     * Each property is a header, with the value being a single string or number or an array of values.
+     */
     static BrowserHttpServerHttpRequestHeadersMap with(final JsonObject headers) {
-        return new BrowserHttpServerHttpRequestHeadersMap(headers);
+        final List<String> names = Lists.array();
+        final List<Object> values = Lists.array();
+
+        for (final JsonNode header : headers.children()) {
+            final String name = header.name().value();
+
+            if (header.isArray()) {
+                for (final JsonNode value : header.children()) {
+                    names.add(name);
+                    values.add(value(value));
+                }
+            } else {
+                names.add(name);
+                values.add(value(header));
+            }
+        }
+
+        return with(
+            names.toArray(new String[0]),
+            values.toArray()
+        );
+    }
+
+    /**
+     * Whole numbers that a javascript number holds exactly become a {@link Long}, anything else is text.
+     */
+    private static Object value(final JsonNode value) {
+        Object result = null;
+
+        if (value.isNumber()) {
+            final double number = value.numberOrFail()
+                .doubleValue();
+            final long longValue = (long) number;
+            if (longValue == number && BrowserHttpServerJsonWriter.isSafeInteger(longValue)) {
+                result = longValue;
+            }
+        }
+
+        return null != result ?
+            result :
+            value.text();
     }
 
-    private BrowserHttpServerHttpRequestHeadersMap(final JsonObject headers) {
+    /**
+     * Creates a map from parallel arrays of names and values, each value being text or a {@link Long}.
+     */
+    static BrowserHttpServerHttpRequestHeadersMap with(final String[] names,
+                                                       final Object[] values) {
+        return new BrowserHttpServerHttpRequestHeadersMap(names, values);
+    }
+
+    private BrowserHttpServerHttpRequestHeadersMap(final String[] names,
+                                                   final Object[] values) {
         super();
-        this.headers = headers;
+        this.names = names;
+        this.values = values;
     }
 
     @Override
     public Set<Entry<HttpHeaderName<?>, List<?>>> entrySet() {
-        return BrowserHttpServerHttpRequestHeadersMapEntrySet.with(this.headers);
+        if (null == this.entrySet) {
+            this.entrySet = BrowserHttpServerHttpRequestHeadersMapEntrySet.with(this);
+        }
+        return this.entrySet;
     }
 
+    private BrowserHttpServerHttpRequestHeadersMapEntrySet entrySet;
+
     @Override
     public int size() {
-        return this.headers.children().size();
+        return this.groups()
+            .length;
     }
 
     @Override
     public boolean containsKey(final Object key) {
-        return this.get(key).size() > 0;
+        return key instanceof HttpHeaderName &&
+            this.index((HttpHeaderName<?>) key) >= 0;
     }
 
     @Override
@@ -63,22 +132,196 @@ final class BrowserHttpServerHttpRequestHeadersMap extends AbstractMap<HttpHeade
     }
 
     private List<?> get0(final HttpHeaderName<?> header) {
-        return this.headers.children().stream()
-            .filter(hv -> hv.name().value().equalsIgnoreCase(header.value()))
-            .map(hv -> Lists.of(
-                    header.parseValue(
-                        hv.text()
-                    )
-                )
-            )
-            .findFirst()
-            .orElse(Lists.empty());
+        final int index = this.index(header);
+        return index >= 0 ?
+            this.value(index, header) :
+            Lists.empty();
     }
 
-    private final JsonObject headers;
+    /**
+     * Returns the index of the header group with the given name ignoring case, or -1 if absent.
+     */
+    private int index(final HttpHeaderName<?> header) {
+        this.groups();
 
-    @Override
-    public String toString() {
-        return this.headers.toString();
+        final Integer index = this.nameToIndex.get(
+            header.value()
+                .toLowerCase()
+        );
+        return null != index ?
+            index :
+            -1;
+    }
+
+    /**
+     * Returns the text of the first value of the header with the given name ignoring case, without parsing it into a
+     * typed value.
+     */
+    Optional<String> firstText(final String name) {
+        final int[][] groups = this.groups();
+        final Integer index = this.nameToIndex.get(name.toLowerCase());
+
+        return Optional.ofNullable(
+            null != index ?
+                String.valueOf(this.values[groups[index][0]]) :
+                null
+        );
     }
+
+    /**
+     * Groups the positions of all values with the same name ignoring case, in the order each name first appears.
+     */
+    private int[][] groups() {
+        int[][] groups = this.groups;
+        if (null == groups) {
+            final String[] names = this.names;
+            final int count = names.length;
+
+            final Map<String, Integer> nameToIndex = Maps.hash();
+            final int[] groupOfPosition = new int[count];
+            final int[] groupSizes = new int[count];
+            int groupCount = 0;
+
+            for (int i = 0; i < count; i++) {
+                final String lower = names[i].toLowerCase();
+                Integer group = nameToIndex.get(lower);
+                if (null == group) {
+                    group = groupCount;
+                    nameToIndex.put(lower, group);
+                    groupCount++;
+                }
+                groupOfPosition[i] = group;
+                groupSizes[group]++;
+            }
+
+            groups = new int[groupCount][];
+            for (int i = 0; i < groupCount; i++) {
+                groups[i] = new int[groupSizes[i]];
+                groupSizes[i] = 0;
+            }
+            for (int i = 0; i < count; i++) {
+                final int group = groupOfPosition[i];
+                groups[group][groupSizes[group]] = i;
+                groupSizes[group]++;
+            }
+
+            this.nameToIndex = nameToIndex;
+            this.groups = groups;
+        }
+        return groups;
+    }
+
+    /**
+     * Lazily built map of case folded header name to the index of its group.
+     */
+    private Map<String, Integer> nameToIndex;
+
+    /**
+     * For each header, the positions in {@link #names} and {@link #values} of all its values.
+     */
+    private int[][] groups;
+
+    /**
+     * Returns the {@link HttpHeaderName} for the header group at the given index, using the first spelling and
+     * creating it once.
+     */
+    HttpHeaderName<?> name(final int index) {
+        final int[][] groups = this.groups();
+
+        HttpHeaderName<?>[] headerNames = this.headerNames;
+        if (null == headerNames) {
+            headerNames = new HttpHeaderName<?>[groups.length];
+            this.headerNames = headerNames;
+        }
+
+        HttpHeaderName<?> name = headerNames[index];
+        if (null == name) {
+            name = HttpHeaderName.with(
+                this.names[groups[index][0]]
+            );
+            headerNames[index] = name;
+        }
+        return name;
+    }
+
+    private HttpHeaderName<?>[] headerNames;
+
+    /**
+     * Returns all the parsed values for the header group at the given index, parsing the text only once.
+     */
+    List<?> value(final int index,
+                  final HttpHeaderName<?> header) {
+        final int[][] groups = this.groups();
+
+        List<?>[] parsed = this.parsed;
+        if (null == parsed) {
+            parsed = new List<?>[groups.length];
+            this.parsed = parsed;
+        }
+
+        List<?> value = parsed[index];
+        if (null == value) {
+            final List<Object> values = Lists.array();
+            for (final int position : groups[index]) {
+                final Object raw = this.values[position];
+                values.add(
+                    raw instanceof Long ?
+                        longValue(
+                            header,
+                            (Long) raw
+                        ) :
+                        parseValue(
+                            header,
+                            raw instanceof String ?
+                                (String) raw :
+                                String.valueOf(raw)
+                        )
+                );
+            }
+            value = Lists.immutable(values);
+            parsed[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * An invalid header value is a bad request.
+     */
+    private static Object parseValue(final HttpHeaderName<?> header,
+                                     final String text) {
+        try {
+            return header.parseValue(text);
+        } catch (final RuntimeException cause) {
+            throw BrowserHttpServerBadRequestException.with(cause);
+        }
+    }
+
+    /**
+     * A whole number for a header whose value is a {@link Long} is used without parsing, any other header parses the
+     * digits.
+     */
+    private static Object longValue(final HttpHeaderName<?> header,
+                                    final Long raw) {
+        return LONG_VALUED.contains(header) ?
+            raw :
+            parseValue(
+                header,
+                String.valueOf(raw)
+            );
+    }
+
+    /**
+     * Request headers whose value is a {@link Long}.
+     */
+    private final static Set<HttpHeaderName<?>> LONG_VALUED = Sets.of(
+        HttpHeaderName.CONTENT_LENGTH
+    );
+
+    /**
+     * Memoised parsed values, filled as each header is read.
+     */
+    private List<?>[] parsed;
+
+    private final String[] names;
+    private final Object[] values;
 }
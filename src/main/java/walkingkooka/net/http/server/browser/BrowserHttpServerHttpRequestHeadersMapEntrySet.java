@@ -17,56 +17,55 @@
 
 package walkingkooka.net.http.server.browser;
 
-import walkingkooka.collect.iterator.Iterators;
-import walkingkooka.collect.list.Lists;
 import walkingkooka.collect.map.Maps;
 import walkingkooka.net.header.HttpHeaderName;
-import walkingkooka.tree.json.JsonNode;
-import walkingkooka.tree.json.JsonObject;
 
 import java.util.AbstractSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.stream.IntStream;
 
 /**
  * A {@link java.util.Set} view of all the headers in {@link BrowserHttpServerHttpRequest}.
  */
 final class BrowserHttpServerHttpRequestHeadersMapEntrySet extends AbstractSet<Entry<HttpHeaderName<?>, List<?>>> {
 
-    static BrowserHttpServerHttpRequestHeadersMapEntrySet with(final JsonObject headers) {
-        return new BrowserHttpServerHttpRequestHeadersMapEntrySet(headers);
+    static BrowserHttpServerHttpRequestHeadersMapEntrySet with(final BrowserHttpServerHttpRequestHeadersMap map) {
+        return new BrowserHttpServerHttpRequestHeadersMapEntrySet(map);
     }
 
-    private BrowserHttpServerHttpRequestHeadersMapEntrySet(final JsonObject headers) {
+    private BrowserHttpServerHttpRequestHeadersMapEntrySet(final BrowserHttpServerHttpRequestHeadersMap map) {
         super();
-        this.headers = headers;
+        this.map = map;
     }
 
     @Override
     public Iterator<Entry<HttpHeaderName<?>, List<?>>> iterator() {
-        return Iterators.mapping(this.headers.children().iterator(), BrowserHttpServerHttpRequestHeadersMapEntrySet::mapper);
+        return IntStream.range(0, this.map.size())
+            .mapToObj(this::mapper)
+            .iterator();
     }
 
-    private static Entry<HttpHeaderName<?>, List<?>> mapper(final JsonNode node) {
-        final HttpHeaderName<?> headerName = HttpHeaderName.with(node.name().value());
+    /**
+     * The header name and parsed value are created by the map, which keeps them for later iterations and lookups.
+     */
+    private Entry<HttpHeaderName<?>, List<?>> mapper(final int index) {
+        final BrowserHttpServerHttpRequestHeadersMap map = this.map;
+        final HttpHeaderName<?> headerName = map.name(index);
         return Maps.entry(
             headerName,
-            Lists.of(
-                headerName.parseValue(node.text())
+            map.value(
+                index,
+                headerName
             )
         );
     }
 
     @Override
     public int size() {
-        return this.headers.children().size();
+        return this.map.size();
     }
 
-    private final JsonObject headers;
-
-    @Override
-    public String toString() {
-        return this.headers.toString();
-    }
+    private final BrowserHttpServerHttpRequestHeadersMap map;
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import walkingkooka.Cast;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.net.UrlParameterName;
+import walkingkooka.net.UrlQueryString;
+import walkingkooka.net.http.server.HttpRequestParameterName;
+
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read only {@link Map} view of the request parameters, gathered from the query string and any form body.
+ * The names and values are held in two parallel arrays, as requests usually have only a few parameters a linear
+ * search is used for lookups.
+ */
+final class BrowserHttpServerHttpRequestParametersMap extends AbstractMap<HttpRequestParameterName, List<String>> {
+
+    /**
+     * Merges the parameters from each query string, values of a parameter present in several are concatenated in order.
+     */
+    static BrowserHttpServerHttpRequestParametersMap with(final UrlQueryString... queryStrings) {
+        final Map<HttpRequestParameterName, List<String>> merged = Maps.ordered();
+
+        for (final UrlQueryString queryString : queryStrings) {
+            for (final Entry<UrlParameterName, List<String>> nameAndValues : queryString.parameters().entrySet()) {
+                merged.computeIfAbsent(
+                    HttpRequestParameterName.with(
+                        nameAndValues.getKey()
+                            .value()
+                    ),
+                    (n) -> Lists.array()
+                ).addAll(nameAndValues.getValue());
+            }
+        }
+
+        final int count = merged.size();
+        final HttpRequestParameterName[] names = new HttpRequestParameterName[count];
+        final List<?>[] values = new List<?>[count];
+
+        int i = 0;
+        for (final Entry<HttpRequestParameterName, List<String>> nameAndValues : merged.entrySet()) {
+            names[i] = nameAndValues.getKey();
+            values[i] = Lists.immutable(nameAndValues.getValue());
+            i++;
+        }
+
+        return new BrowserHttpServerHttpRequestParametersMap(names, values);
+    }
+
+    private BrowserHttpServerHttpRequestParametersMap(final HttpRequestParameterName[] names,
+                                                      final List<?>[] values) {
+        super();
+        this.names = names;
+        this.values = values;
+    }
+
+    @Override
+    public Set<Entry<HttpRequestParameterName, List<String>>> entrySet() {
+        if (null == this.entrySet) {
+            this.entrySet = BrowserHttpServerHttpRequestParametersMapEntrySet.with(this);
+        }
+        return this.entrySet;
+    }
+
+    private BrowserHttpServerHttpRequestParametersMapEntrySet entrySet;
+
+    @Override
+    public int size() {
+        return this.names.length;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return this.index(key) >= 0;
+    }
+
+    @Override
+    public List<String> get(final Object key) {
+        final int index = this.index(key);
+        return index >= 0 ?
+            this.value(index) :
+            null;
+    }
+
+    private int index(final Object key) {
+        final HttpRequestParameterName[] names = this.names;
+        final int count = names.length;
+
+        int index = -1;
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(key)) {
+                index = i;
+                break;
+            }
+        }
+        return index;
+    }
+
+    HttpRequestParameterName name(final int index) {
+        return this.names[index];
+    }
+
+    List<String> value(final int index) {
+        return Cast.to(this.values[index]);
+    }
+
+    private final HttpRequestParameterName[] names;
+    private final List<?>[] values;
+}
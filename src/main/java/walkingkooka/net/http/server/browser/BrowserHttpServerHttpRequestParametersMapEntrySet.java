@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import walkingkooka.collect.map.Maps;
+import walkingkooka.net.http.server.HttpRequestParameterName;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.stream.IntStream;
+
+/**
+ * A {@link java.util.Set} view of all the parameters in {@link BrowserHttpServerHttpRequestParametersMap}.
+ */
+final class BrowserHttpServerHttpRequestParametersMapEntrySet extends AbstractSet<Entry<HttpRequestParameterName, List<String>>> {
+
+    static BrowserHttpServerHttpRequestParametersMapEntrySet with(final BrowserHttpServerHttpRequestParametersMap map) {
+        return new BrowserHttpServerHttpRequestParametersMapEntrySet(map);
+    }
+
+    private BrowserHttpServerHttpRequestParametersMapEntrySet(final BrowserHttpServerHttpRequestParametersMap map) {
+        super();
+        this.map = map;
+    }
+
+    @Override
+    public Iterator<Entry<HttpRequestParameterName, List<String>>> iterator() {
+        return IntStream.range(0, this.map.size())
+            .mapToObj(this::mapper)
+            .iterator();
+    }
+
+    private Entry<HttpRequestParameterName, List<String>> mapper(final int index) {
+        final BrowserHttpServerHttpRequestParametersMap map = this.map;
+        return Maps.entry(
+            map.name(index),
+            map.value(index)
+        );
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+
+    private final BrowserHttpServerHttpRequestParametersMap map;
+}
@@ -17,26 +17,31 @@
 
 package walkingkooka.net.http.server.browser;
 
+import elemental2.core.Global;
+import elemental2.core.JsArray;
+import jsinterop.base.JsPropertyMap;
 import walkingkooka.Cast;
 import walkingkooka.collect.list.Lists;
 import walkingkooka.net.header.HttpHeaderName;
 import walkingkooka.net.http.HttpEntity;
 import walkingkooka.net.http.HttpProtocolVersion;
 import walkingkooka.net.http.HttpStatus;
-import walkingkooka.net.http.HttpStatusCode;
 import walkingkooka.net.http.server.HttpResponse;
 import walkingkooka.tree.json.JsonNode;
 import walkingkooka.tree.json.JsonObject;
 import walkingkooka.tree.json.JsonPropertyName;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 
 /**
- * A {@link HttpResponse} that builds a JSON object with some restrictions. Only a single {@link HttpEntity} can be set,
- * and headers may only have a single value.
+ * A {@link HttpResponse} that records the id, version, status and entity in plain fields, which are converted into a
+ * JSON object only when the response is sent. Only a single {@link HttpEntity} can be set, and a header with several
+ * values is sent as an array of values. An entity with a binary content-type keeps its bytes for wire formats that
+ * support binary values, and is only decoded into text when a text wire format requires it.
  */
 final class BrowserHttpServerHttpResponse implements HttpResponse {
 
@@ -48,24 +53,36 @@ final class BrowserHttpServerHttpResponse implements HttpResponse {
         super();
     }
 
+    /**
+     * Sets the id, which is the id from the matching request.
+     */
+    void setId(final JsonNode id) {
+        Objects.requireNonNull(id, "id");
+
+        this.id = id;
+    }
+
+    Optional<JsonNode> id() {
+        return Optional.ofNullable(this.id);
+    }
+
+    private JsonNode id;
+
+    private final static JsonPropertyName ID = JsonPropertyName.with("id");
+
     @Override
     public void setVersion(final HttpProtocolVersion version) {
         Objects.requireNonNull(version, "version");
 
-        this.object = this.object.set(
-            VERSION,
-            version.value()
-        );
+        this.version = version;
     }
 
     @Override
     public Optional<HttpProtocolVersion> version() {
-        return this.object.get(VERSION).map(BrowserHttpServerHttpResponse::version0);
+        return Optional.ofNullable(this.version);
     }
 
-    private static HttpProtocolVersion version0(final JsonNode node) {
-        return HttpProtocolVersion.with(node.stringOrFail());
-    }
+    private HttpProtocolVersion version;
 
     private final static JsonPropertyName VERSION = JsonPropertyName.with("version");
 
@@ -73,41 +90,73 @@ final class BrowserHttpServerHttpResponse implements HttpResponse {
     public void setStatus(final HttpStatus status) {
         Objects.requireNonNull(status, "status");
 
-        this.object = this.object.set(
-            STATUS_CODE,
-            status.value().code()
-        ).set(
-            STATUS_MESSAGE,
-            status.message()
-        );
+        this.status = status;
     }
 
     @Override
     public Optional<HttpStatus> status() {
-        return this.object.get(STATUS_CODE)
-            .map(BrowserHttpServerHttpResponse::status0);
+        return Optional.ofNullable(this.status);
     }
 
-    private static HttpStatus status0(final JsonNode node) {
-        return HttpStatusCode.withCode(node.numberOrFail().intValue())
-            .setMessage(node.parentOrFail().objectOrFail().getOrFail(STATUS_MESSAGE).stringOrFail());
-    }
+    private HttpStatus status;
 
     private final static JsonPropertyName STATUS_CODE = JsonPropertyName.with("status-code");
     private final static JsonPropertyName STATUS_MESSAGE = JsonPropertyName.with("status-message");
 
+    /**
+     * Sets the number of requests waiting or running when this response completed, allowing clients to back off
+     * before the server starts refusing requests.
+     */
+    void setQueueDepth(final int queueDepth) {
+        if (queueDepth < 0) {
+            throw new IllegalArgumentException("Invalid queueDepth " + queueDepth + " < 0");
+        }
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * The queue depth or -1 when absent.
+     */
+    private int queueDepth = -1;
+
+    private final static JsonPropertyName QUEUE_DEPTH = JsonPropertyName.with("queue-depth");
+
+    /**
+     * Records the error that an asynchronous handler failed with, which the server maps to the same bad request or
+     * internal server error response used when a handler throws.
+     */
+    void setFailure(final Object failure) {
+        Objects.requireNonNull(failure, "failure");
+
+        this.failure = failure;
+    }
+
+    Optional<Object> failure() {
+        return Optional.ofNullable(this.failure);
+    }
+
+    private Object failure;
+
+    /**
+     * The headers are copied into two parallel arrays, numbers are kept while all other values are converted to
+     * header text. A header with several values has an array holding each value.
+     */
     @Override
     public void setEntity(final HttpEntity entity) {
         Objects.requireNonNull(entity, "entity");
 
-        JsonObject object = this.object;
-        if (object.get(HEADERS).isPresent() || object.get(BODY).isPresent()) {
+        if (null != this.headerNames || null != this.bodyText || null != this.binaryBody) {
             throw new IllegalArgumentException("Only 1 entity supported=" + entity);
         }
 
-        final List<JsonNode> headers = Lists.array();
+        final Map<HttpHeaderName<?>, List<?>> headers = entity.headers();
+        final int count = headers.size();
+
+        final String[] headerNames = new String[count];
+        final Object[] headerValues = new Object[count];
+        int i = 0;
 
-        for (final Entry<HttpHeaderName<?>, List<?>> headerAndValues : entity.headers().entrySet()) {
+        for (final Entry<HttpHeaderName<?>, List<?>> headerAndValues : headers.entrySet()) {
             final HttpHeaderName<?> header = headerAndValues.getKey();
             final List<?> values = headerAndValues.getValue();
 
@@ -116,64 +165,514 @@ final class BrowserHttpServerHttpResponse implements HttpResponse {
                 case 0:
                     break;
                 case 1:
-                    final Object value = values.get(0);
-                    final JsonNode valueJsonNode = value instanceof Number ?
-                        JsonNode.number(((Number) value).doubleValue()) :
-                        JsonNode.string(header.headerText(Cast.to(value)));
-
-                    headers.add(valueJsonNode.setName(JsonPropertyName.with(header.value())));
+                    headerNames[i] = header.value();
+                    headerValues[i] = headerValue(header, values.get(0));
+                    i++;
                     break;
                 default:
-                    throw new IllegalArgumentException("Header " + header + " contains " + valueCount + " values only 1 supported=" + values);
+                    final Object[] multiple = new Object[valueCount];
+                    for (int j = 0; j < valueCount; j++) {
+                        multiple[j] = headerValue(header, values.get(j));
+                    }
+
+                    headerNames[i] = header.value();
+                    headerValues[i] = multiple;
+                    i++;
+                    break;
             }
         }
 
-        if (!headers.isEmpty()) {
-            object = object.set(HEADERS, JsonNode.object().setChildren(headers));
+        if (i > 0) {
+            this.headerNames = headerNames;
+            this.headerValues = headerValues;
+            this.headerCount = i;
         }
 
-        final String bodyText = entity.bodyText();
-        if (!bodyText.isEmpty()) {
-            object = object.set(BODY, JsonNode.string(bodyText));
+        final List<?> contentTypes = headers.getOrDefault(HttpHeaderName.CONTENT_TYPE, Lists.empty());
+        if (!contentTypes.isEmpty() &&
+            !isText(HttpHeaderName.CONTENT_TYPE.headerText(Cast.to(contentTypes.get(0))))) {
+            final byte[] bytes = entity.body()
+                .value();
+            if (bytes.length > 0) {
+                this.binaryBody = bytes;
+            }
+        } else {
+            final String bodyText = entity.bodyText();
+            if (!bodyText.isEmpty()) {
+                this.bodyText = bodyText;
+            }
         }
 
-        this.object = object;
+        this.entity = entity;
     }
 
+    /**
+     * Adds a header with a single value that is either a {@link Number} or header text, used by responses created by
+     * the server rather than a handler.
+     */
+    void addHeader(final String name,
+                   final Object value) {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(value, "value");
+
+        final int count = this.headerCount;
+
+        final String[] headerNames = new String[count + 1];
+        final Object[] headerValues = new Object[count + 1];
+        if (count > 0) {
+            System.arraycopy(this.headerNames, 0, headerNames, 0, count);
+            System.arraycopy(this.headerValues, 0, headerValues, 0, count);
+        }
+        headerNames[count] = name;
+        headerValues[count] = value;
+
+        this.headerNames = headerNames;
+        this.headerValues = headerValues;
+        this.headerCount = count + 1;
+    }
+
+    private static Object headerValue(final HttpHeaderName<?> header,
+                                      final Object value) {
+        return value instanceof Number ?
+            value :
+            header.headerText(Cast.to(value));
+    }
+
+    /**
+     * Header names and values, both null until an entity with headers is set. Each value is either a {@link Number},
+     * header text or an array of several of those.
+     */
+    private String[] headerNames;
+    private Object[] headerValues;
+    private int headerCount;
+
+    /**
+     * Returns the body text or an empty string if none was set. A binary body is only decoded the first time this is
+     * called, which only happens for wire formats that cannot send binary values.
+     */
+    String bodyText() {
+        final String bodyText = this.bodyTextOrNull();
+        return null != bodyText ?
+            bodyText :
+            "";
+    }
+
+    private String bodyTextOrNull() {
+        String bodyText = this.bodyText;
+        if (null == bodyText && null != this.binaryBody) {
+            bodyText = this.decodedBinaryBody;
+            if (null == bodyText) {
+                bodyText = this.entity.bodyText();
+                this.decodedBinaryBody = bodyText;
+            }
+        }
+        return bodyText;
+    }
+
+    /**
+     * The body text, null when absent, empty or the body is binary.
+     */
+    private String bodyText;
+
+    /**
+     * A binary body decoded into text, only set when a text wire format requires it.
+     */
+    private String decodedBinaryBody;
+
+    /**
+     * Returns a new response with the same id, version, status, queue depth and headers but without any body, used as the first
+     * message when streaming the body.
+     */
+    BrowserHttpServerHttpResponse withoutBody() {
+        final BrowserHttpServerHttpResponse head = new BrowserHttpServerHttpResponse();
+        head.id = this.id;
+        head.version = this.version;
+        head.status = this.status;
+        head.queueDepth = this.queueDepth;
+        head.headerNames = this.headerNames;
+        head.headerValues = this.headerValues;
+        head.headerCount = this.headerCount;
+        return head;
+    }
+
+    /**
+     * Returns the body bytes if the entity has a content-type that is not text, such as an image. Wire formats that
+     * support binary values may use this in preference to the body text.
+     */
+    Optional<byte[]> binaryBody() {
+        return Optional.ofNullable(this.binaryBody);
+    }
+
+    /**
+     * The body bytes of an entity with a content-type that is not text, null when absent or empty.
+     */
+    private byte[] binaryBody;
+
+    /**
+     * Tests if the content type holds text, anything else is considered binary.
+     */
+    private static boolean isText(final String contentType) {
+        final String lower = contentType.toLowerCase();
+        return lower.startsWith("text/") ||
+            lower.contains("json") ||
+            lower.contains("xml") ||
+            lower.contains("javascript") ||
+            lower.contains("charset=");
+    }
+
+    /**
+     * The entity given to {@link #setEntity(HttpEntity)}, also used to decode a binary body into text.
+     */
+    private HttpEntity entity;
+
+    /**
+     * Returns the {@link HttpEntity} given to {@link #setEntity(HttpEntity)} unchanged, or an empty entity if none
+     * was set.
+     */
     @Override
     public HttpEntity entity() {
-        HttpEntity entity = HttpEntity.EMPTY;
-
-        final JsonObject object = this.object;
-        final Optional<JsonNode> headers = object.get(HEADERS);
-        if (headers.isPresent()) {
-            for (final JsonNode headerAndValue : headers.get().children()) {
-                final HttpHeaderName<?> header = HttpHeaderName.with(headerAndValue.name().value());
-                final String value = headerAndValue.text();
-                entity = entity.addHeader(
-                    header,
-                    Cast.to(
-                        header.parseValue(value)
-                    )
+        final HttpEntity entity = this.entity;
+        return null != entity ?
+            entity :
+            HttpEntity.EMPTY;
+    }
+
+    private final static JsonPropertyName HEADERS = JsonPropertyName.with("headers");
+    private final static JsonPropertyName BODY = JsonPropertyName.with("body");
+
+    /**
+     * Builds the JSON object sent to the client, this is only called when the response is sent.
+     */
+    JsonObject toJsonObject() {
+        final List<JsonNode> properties = Lists.array();
+
+        final JsonNode id = this.id;
+        if (null != id) {
+            properties.add(id.setName(ID));
+        }
+
+        final HttpProtocolVersion version = this.version;
+        if (null != version) {
+            properties.add(
+                JsonNode.string(version.value())
+                    .setName(VERSION)
+            );
+        }
+
+        final HttpStatus status = this.status;
+        if (null != status) {
+            properties.add(
+                JsonNode.number(
+                    status.value()
+                        .code()
+                ).setName(STATUS_CODE)
+            );
+            properties.add(
+                JsonNode.string(status.message())
+                    .setName(STATUS_MESSAGE)
+            );
+        }
+
+        final int queueDepth = this.queueDepth;
+        if (queueDepth >= 0) {
+            properties.add(
+                JsonNode.number(queueDepth)
+                    .setName(QUEUE_DEPTH)
+            );
+        }
+
+        final int headerCount = this.headerCount;
+        if (headerCount > 0) {
+            final String[] headerNames = this.headerNames;
+            final Object[] headerValues = this.headerValues;
+
+            final List<JsonNode> headers = Lists.array();
+            for (int i = 0; i < headerCount; i++) {
+                final Object value = headerValues[i];
+
+                final JsonNode json;
+                if (value instanceof Object[]) {
+                    final List<JsonNode> values = Lists.array();
+                    for (final Object v : (Object[]) value) {
+                        values.add(headerJson(v));
+                    }
+                    json = JsonNode.array()
+                        .setChildren(values);
+                } else {
+                    json = headerJson(value);
+                }
+
+                headers.add(
+                    json.setName(JsonPropertyName.with(headerNames[i]))
                 );
             }
+
+            properties.add(
+                JsonNode.object()
+                    .setChildren(headers)
+                    .setName(HEADERS)
+            );
         }
 
-        final Optional<JsonNode> bodyText = object.get(BODY);
-        if (bodyText.isPresent()) {
-            entity = entity.setBodyText(bodyText.get().stringOrFail());
+        final String bodyText = this.bodyTextOrNull();
+        if (null != bodyText) {
+            properties.add(
+                JsonNode.string(bodyText)
+                    .setName(BODY)
+            );
         }
 
-        return entity;
+        return JsonNode.object()
+            .setChildren(properties);
     }
 
-    private final static JsonPropertyName HEADERS = JsonPropertyName.with("headers");
-    private final static JsonPropertyName BODY = JsonPropertyName.with("body");
+    /**
+     * Integral values beyond the range a javascript number holds exactly become a string of digits, matching
+     * {@link BrowserHttpServerJsonWriter#number(Number, StringBuilder)}.
+     */
+    private static JsonNode headerJson(final Object value) {
+        final JsonNode json;
+
+        if (value instanceof Number) {
+            final Number number = (Number) value;
+            json = BrowserHttpServerJsonWriter.isIntegral(number) && false == BrowserHttpServerJsonWriter.isSafeInteger(number.longValue()) ?
+                JsonNode.string(String.valueOf(number.longValue())) :
+                JsonNode.number(number.doubleValue());
+        } else {
+            json = JsonNode.string((String) value);
+        }
+
+        return json;
+    }
+
+    /**
+     * Writes the response as compact JSON text directly from its fields, without building a {@link JsonObject}. The
+     * properties and their order match {@link #toJsonObject()}.
+     */
+    void writeJson(final StringBuilder b) {
+        b.append('{');
+
+        String separator = "";
+
+        final JsonNode id = this.id;
+        if (null != id) {
+            b.append("\"id\":");
+            BrowserHttpServerJsonWriter.node(id, b);
+            separator = ",";
+        }
+
+        final HttpProtocolVersion version = this.version;
+        if (null != version) {
+            b.append(separator)
+                .append("\"version\":");
+            BrowserHttpServerJsonWriter.string(version.value(), b);
+            separator = ",";
+        }
+
+        final HttpStatus status = this.status;
+        if (null != status) {
+            b.append(separator)
+                .append("\"status-code\":")
+                .append(
+                    status.value()
+                        .code()
+                ).append(",\"status-message\":");
+            BrowserHttpServerJsonWriter.string(status.message(), b);
+            separator = ",";
+        }
+
+        final int queueDepth = this.queueDepth;
+        if (queueDepth >= 0) {
+            b.append(separator)
+                .append("\"queue-depth\":")
+                .append(queueDepth);
+            separator = ",";
+        }
+
+        final int headerCount = this.headerCount;
+        if (headerCount > 0) {
+            final String[] headerNames = this.headerNames;
+            final Object[] headerValues = this.headerValues;
+
+            b.append(separator)
+                .append("\"headers\":{");
+
+            for (int i = 0; i < headerCount; i++) {
+                if (i > 0) {
+                    b.append(',');
+                }
+                BrowserHttpServerJsonWriter.string(headerNames[i], b);
+                b.append(':');
+
+                final Object value = headerValues[i];
+                if (value instanceof Object[]) {
+                    b.append('[');
+                    final Object[] values = (Object[]) value;
+                    for (int j = 0; j < values.length; j++) {
+                        if (j > 0) {
+                            b.append(',');
+                        }
+                        writeHeaderValue(values[j], b);
+                    }
+                    b.append(']');
+                } else {
+                    writeHeaderValue(value, b);
+                }
+            }
 
-    JsonObject object = JsonNode.object();
+            b.append('}');
+            separator = ",";
+        }
+
+        final String bodyText = this.bodyTextOrNull();
+        if (null != bodyText) {
+            b.append(separator)
+                .append("\"body\":");
+            BrowserHttpServerJsonWriter.string(bodyText, b);
+        }
+
+        b.append('}');
+    }
+
+    /**
+     * Builds the response as a native javascript object directly from its fields, for wire formats that post a
+     * structured clone. The properties and their order match {@link #toJsonObject()}, except a binary body is left
+     * for the wire format to add as bytes rather than being decoded into text. This is only usable within a browser.
+     */
+    JsPropertyMap<Object> toJsPropertyMap() {
+        final JsPropertyMap<Object> js = JsPropertyMap.of();
+
+        final JsonNode id = this.id;
+        if (null != id) {
+            js.set(
+                ID.value(),
+                jsId(id)
+            );
+        }
+
+        final HttpProtocolVersion version = this.version;
+        if (null != version) {
+            js.set(
+                VERSION.value(),
+                version.value()
+            );
+        }
+
+        final HttpStatus status = this.status;
+        if (null != status) {
+            js.set(
+                STATUS_CODE.value(),
+                (double) status.value()
+                    .code()
+            );
+            js.set(
+                STATUS_MESSAGE.value(),
+                status.message()
+            );
+        }
+
+        final int queueDepth = this.queueDepth;
+        if (queueDepth >= 0) {
+            js.set(
+                QUEUE_DEPTH.value(),
+                (double) queueDepth
+            );
+        }
+
+        final int headerCount = this.headerCount;
+        if (headerCount > 0) {
+            final String[] headerNames = this.headerNames;
+            final Object[] headerValues = this.headerValues;
+
+            final JsPropertyMap<Object> headers = JsPropertyMap.of();
+            for (int i = 0; i < headerCount; i++) {
+                final Object value = headerValues[i];
+
+                final Object jsValue;
+                if (value instanceof Object[]) {
+                    final JsArray<Object> values = new JsArray<>();
+                    for (final Object v : (Object[]) value) {
+                        values.push(jsHeaderValue(v));
+                    }
+                    jsValue = values;
+                } else {
+                    jsValue = jsHeaderValue(value);
+                }
+
+                headers.set(
+                    headerNames[i],
+                    jsValue
+                );
+            }
+
+            js.set(
+                HEADERS.value(),
+                headers
+            );
+        }
+
+        final String bodyText = this.bodyText;
+        if (null != bodyText) {
+            js.set(
+                BODY.value(),
+                bodyText
+            );
+        }
+
+        return js;
+    }
+
+    /**
+     * Strings and numbers, the common ids, are converted directly while any other id is parsed from its JSON text.
+     */
+    private static Object jsId(final JsonNode id) {
+        final Object js;
+
+        if (id.isString()) {
+            js = id.stringOrFail();
+        } else {
+            if (id.isNumber()) {
+                js = id.numberOrFail()
+                    .doubleValue();
+            } else {
+                js = Global.JSON.parse(id.toString());
+            }
+        }
+
+        return js;
+    }
+
+    /**
+     * Numbers become javascript numbers, except integral values beyond the range a javascript number holds exactly
+     * which become a string of digits, matching {@link #headerJson(Object)}.
+     */
+    private static Object jsHeaderValue(final Object value) {
+        final Object js;
+
+        if (value instanceof Number) {
+            final Number number = (Number) value;
+            js = BrowserHttpServerJsonWriter.isIntegral(number) && false == BrowserHttpServerJsonWriter.isSafeInteger(number.longValue()) ?
+                String.valueOf(number.longValue()) :
+                (Object) number.doubleValue();
+        } else {
+            js = value;
+        }
+
+        return js;
+    }
+
+    private static void writeHeaderValue(final Object value,
+                                         final StringBuilder b) {
+        if (value instanceof Number) {
+            BrowserHttpServerJsonWriter.number((Number) value, b);
+        } else {
+            BrowserHttpServerJsonWriter.string((String) value, b);
+        }
+    }
 
     @Override
     public String toString() {
-        return this.object.toString();
+        return this.toJsonObject()
+            .toString();
     }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonObject;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A {@link BrowserHttpServerHttpRequest} sourced from a {@link JsonObject}.
+ */
+final class BrowserHttpServerJsonHttpRequest extends BrowserHttpServerHttpRequest {
+
+    static BrowserHttpServerJsonHttpRequest with(final JsonObject json) {
+        Objects.requireNonNull(json, "json");
+        return new BrowserHttpServerJsonHttpRequest(json);
+    }
+
+    private BrowserHttpServerJsonHttpRequest(final JsonObject json) {
+        super();
+        this.json = json;
+    }
+
+    @Override
+    Optional<JsonNode> id() {
+        return this.json.get(ID);
+    }
+
+    private final static JsonPropertyName ID = JsonPropertyName.with("id");
+
+    @Override
+    Optional<JsonNode> abortId() {
+        return this.json.get(ABORT);
+    }
+
+    private final static JsonPropertyName ABORT = JsonPropertyName.with("abort");
+
+    @Override
+    Optional<String> priorityText() {
+        return this.json.get(PRIORITY)
+            .map(JsonNode::text);
+    }
+
+    private final static JsonPropertyName PRIORITY = JsonPropertyName.with("priority");
+
+    @Override
+    Optional<String> versionText() {
+        return this.json.get(VERSION)
+            .map(JsonNode::stringOrFail);
+    }
+
+    private final static JsonPropertyName VERSION = JsonPropertyName.with("version");
+
+    @Override
+    String urlText() {
+        return this.json.getOrFail(URL).stringOrFail();
+    }
+
+    private final static JsonPropertyName URL = JsonPropertyName.with("url");
+
+    @Override
+    Optional<String> methodText() {
+        return this.json.get(METHOD)
+            .map(JsonNode::stringOrFail);
+    }
+
+    private final static JsonPropertyName METHOD = JsonPropertyName.with("method");
+
+    @Override
+    int headerCount() {
+        int count = 0;
+
+        final Optional<JsonNode> headers = this.json.get(HEADERS);
+        if (headers.isPresent()) {
+            for (final JsonNode header : headers.get().children()) {
+                count += header.isArray() ?
+                    header.children().size() :
+                    1;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    BrowserHttpServerHttpRequestHeadersMap createHeaders() {
+        return BrowserHttpServerHttpRequestHeadersMap.with(
+            this.json.get(HEADERS)
+                .orElse(JsonNode.object())
+                .objectOrFail()
+        );
+    }
+
+    private final static JsonPropertyName HEADERS = JsonPropertyName.with("headers");
+
+    @Override
+    public String bodyText() {
+        return this.json.get(BODY)
+            .map(JsonNode::stringOrFail)
+            .orElse("");
+    }
+
+    private final static JsonPropertyName BODY = JsonPropertyName.with("body");
+
+    private final JsonObject json;
+
+    @Override
+    public String toString() {
+        return this.json.toString();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import walkingkooka.tree.json.JsonNode;
+
+/**
+ * Writes a {@link JsonNode} as compact JSON text, without any whitespace or line breaks, in a single pass into a
+ * {@link StringBuilder}.
+ */
+final class BrowserHttpServerJsonWriter {
+
+    /**
+     * Returns the compact JSON text form of the given {@link JsonNode}.
+     */
+    static String write(final JsonNode node) {
+        final StringBuilder b = new StringBuilder();
+        node(node, b);
+        return b.toString();
+    }
+
+    static void node(final JsonNode node,
+                     final StringBuilder b) {
+        if (node.isNull()) {
+            b.append("null");
+        } else {
+            if (node.isBoolean()) {
+                b.append(node.booleanOrFail());
+            } else {
+                if (node.isNumber()) {
+                    number(node.numberOrFail().doubleValue(), b);
+                } else {
+                    if (node.isString()) {
+                        string(node.stringOrFail(), b);
+                    } else {
+                        if (node.isArray()) {
+                            array(node, b);
+                        } else {
+                            object(node, b);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void array(final JsonNode array,
+                              final StringBuilder b) {
+        b.append('[');
+
+        String separator = "";
+        for (final JsonNode element : array.children()) {
+            b.append(separator);
+            node(element, b);
+            separator = ",";
+        }
+
+        b.append(']');
+    }
+
+    private static void object(final JsonNode object,
+                               final StringBuilder b) {
+        b.append('{');
+
+        String separator = "";
+        for (final JsonNode property : object.children()) {
+            b.append(separator);
+            string(property.name().value(), b);
+            b.append(':');
+            node(property, b);
+            separator = ",";
+        }
+
+        b.append('}');
+    }
+
+    /**
+     * Whole numbers are written without a trailing fraction, matching the text produced by {@link JsonNode#toString()}.
+     */
+    static void number(final double value,
+                       final StringBuilder b) {
+        final long longValue = (long) value;
+        if (longValue == value) {
+            b.append(longValue);
+        } else {
+            b.append(value);
+        }
+    }
+
+    /**
+     * Integral values are written exactly without passing through a double. Those beyond the range a javascript
+     * number can hold exactly are written as a string of digits, all other values are written as a double.
+     */
+    static void number(final Number value,
+                       final StringBuilder b) {
+        if (isIntegral(value)) {
+            final long longValue = value.longValue();
+            if (isSafeInteger(longValue)) {
+                b.append(longValue);
+            } else {
+                b.append('"')
+                    .append(longValue)
+                    .append('"');
+            }
+        } else {
+            number(value.doubleValue(), b);
+        }
+    }
+
+    static boolean isIntegral(final Number value) {
+        return value instanceof Long ||
+            value instanceof Integer ||
+            value instanceof Short ||
+            value instanceof Byte;
+    }
+
+    /**
+     * Tests if the value is within the range of integers that a javascript number holds exactly.
+     */
+    static boolean isSafeInteger(final long value) {
+        return value >= -MAX_SAFE_INTEGER && value <= MAX_SAFE_INTEGER;
+    }
+
+    private final static long MAX_SAFE_INTEGER = 9007199254740991L;
+
+    /**
+     * Writes the text within double quotes escaping any characters that require escaping.
+     */
+    static void string(final String text,
+                       final StringBuilder b) {
+        b.append('"');
+
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    b.append("\\\"");
+                    break;
+                case '\\':
+                    b.append("\\\\");
+                    break;
+                case '\b':
+                    b.append("\\b");
+                    break;
+                case '\f':
+                    b.append("\\f");
+                    break;
+                case '\n':
+                    b.append("\\n");
+                    break;
+                case '\r':
+                    b.append("\\r");
+                    break;
+                case '\t':
+                    b.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        b.append("\\u00");
+                        b.append(HEX[c >> 4]);
+                        b.append(HEX[c & 0xf]);
+                    } else {
+                        b.append(c);
+                    }
+                    break;
+            }
+        }
+
+        b.append('"');
+    }
+
+    private final static char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Stop creation
+     */
+    private BrowserHttpServerJsonWriter() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import elemental2.core.Global;
+import elemental2.core.JsArray;
+import jsinterop.base.Js;
+import jsinterop.base.JsArrayLike;
+import jsinterop.base.JsPropertyMap;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.tree.json.JsonNode;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A {@link BrowserHttpServerHttpRequest} that reads its properties directly from a native javascript object, typically
+ * produced by the browser's <code>JSON.parse</code>, avoiding the cost of building a {@link JsonNode} tree.
+ * This is only usable within a browser.
+ */
+final class BrowserHttpServerNativeHttpRequest extends BrowserHttpServerHttpRequest {
+
+    static BrowserHttpServerNativeHttpRequest with(final Object object) {
+        Objects.requireNonNull(object, "object");
+        return new BrowserHttpServerNativeHttpRequest(Js.asPropertyMap(object));
+    }
+
+    /**
+     * Creates a request for each element of a javascript array.
+     */
+    static List<BrowserHttpServerHttpRequest> batch(final Object array) {
+        final JsArrayLike<Object> elements = Js.asArrayLike(array);
+        final int count = elements.getLength();
+
+        final List<BrowserHttpServerHttpRequest> requests = Lists.array();
+        for (int i = 0; i < count; i++) {
+            requests.add(
+                with(elements.getAt(i))
+            );
+        }
+        return requests;
+    }
+
+    private BrowserHttpServerNativeHttpRequest(final JsPropertyMap<Object> object) {
+        super();
+        this.object = object;
+    }
+
+    @Override
+    Optional<JsonNode> id() {
+        return this.jsonNode(ID);
+    }
+
+    @Override
+    Optional<JsonNode> abortId() {
+        return this.jsonNode(ABORT);
+    }
+
+    private final static String ABORT = "abort";
+
+    private Optional<JsonNode> jsonNode(final String property) {
+        final Object id = this.object.get(property);
+        return Optional.ofNullable(
+            null != id ?
+                id(id) :
+                null
+        );
+    }
+
+    private static JsonNode id(final Object id) {
+        final JsonNode node;
+
+        switch (Js.typeof(id)) {
+            case STRING:
+                node = JsonNode.string(Js.asString(id));
+                break;
+            case NUMBER:
+                node = JsonNode.number(Js.asDouble(id));
+                break;
+            default:
+                node = JsonNode.parse(Global.JSON.stringify(id));
+                break;
+        }
+
+        return node;
+    }
+
+    private final static String ID = "id";
+
+    @Override
+    Optional<String> priorityText() {
+        return this.string(PRIORITY);
+    }
+
+    private final static String PRIORITY = "priority";
+
+    @Override
+    Optional<String> versionText() {
+        return this.string(VERSION);
+    }
+
+    private final static String VERSION = "version";
+
+    @Override
+    String urlText() {
+        return this.string(URL)
+            .orElseThrow(() -> new IllegalArgumentException("Missing \"" + URL + "\""));
+    }
+
+    private final static String URL = "url";
+
+    @Override
+    Optional<String> methodText() {
+        return this.string(METHOD);
+    }
+
+    private final static String METHOD = "method";
+
+    @Override
+    int headerCount() {
+        final int[] count = new int[1];
+
+        final Object headers = this.object.get(HEADERS);
+        if (null != headers) {
+            final JsPropertyMap<Object> map = Js.asPropertyMap(headers);
+            map.forEach(
+                (name) -> {
+                    final Object value = map.get(name);
+                    count[0] += JsArray.isArray(value) ?
+                        Js.asArrayLike(value).getLength() :
+                        1;
+                }
+            );
+        }
+
+        return count[0];
+    }
+
+    /**
+     * Copies the headers names and values into arrays, whole numbers are kept as a {@link Long} and other numbers are
+     * converted to text. A header whose value is an array has its name repeated for each value.
+     */
+    @Override
+    BrowserHttpServerHttpRequestHeadersMap createHeaders() {
+        final List<String> names = Lists.array();
+        final List<Object> values = Lists.array();
+
+        final Object headers = this.object.get(HEADERS);
+        if (null != headers) {
+            final JsPropertyMap<Object> map = Js.asPropertyMap(headers);
+            map.forEach(
+                (name) -> {
+                    final Object value = map.get(name);
+
+                    if (JsArray.isArray(value)) {
+                        final JsArrayLike<Object> array = Js.asArrayLike(value);
+                        final int count = array.getLength();
+                        for (int i = 0; i < count; i++) {
+                            names.add(name);
+                            values.add(headerValue(array.getAt(i)));
+                        }
+                    } else {
+                        names.add(name);
+                        values.add(headerValue(value));
+                    }
+                }
+            );
+        }
+
+        return BrowserHttpServerHttpRequestHeadersMap.with(
+            names.toArray(new String[0]),
+            values.toArray()
+        );
+    }
+
+    private final static String HEADERS = "headers";
+
+    /**
+     * If the body is an <code>ArrayBuffer</code> or <code>Uint8Array</code> its bytes are returned, otherwise the
+     * body text is encoded.
+     */
+    @Override
+    public byte[] body() {
+        final Object body = this.object.get(BODY);
+        return BrowserHttpServerArrayBuffers.isBinary(body) ?
+            BrowserHttpServerArrayBuffers.bytes(body) :
+            super.body();
+    }
+
+    /**
+     * The length of a binary body is read without copying its bytes.
+     */
+    @Override
+    long computeBodyLength() {
+        final Object body = this.object.get(BODY);
+        return BrowserHttpServerArrayBuffers.isBinary(body) ?
+            BrowserHttpServerArrayBuffers.byteLength(body) :
+            super.computeBodyLength();
+    }
+
+    /**
+     * A binary body is decoded using the charset from the content-type.
+     */
+    @Override
+    public String bodyText() {
+        final Object body = this.object.get(BODY);
+        return null == body ?
+            "" :
+            BrowserHttpServerArrayBuffers.isBinary(body) ?
+                new String(BrowserHttpServerArrayBuffers.bytes(body), this.bodyCharset()) :
+                Js.asString(body);
+    }
+
+    private final static String BODY = "body";
+
+    private Optional<String> string(final String property) {
+        final Object value = this.object.get(property);
+        return Optional.ofNullable(
+            null != value ?
+                Js.asString(value) :
+                null
+        );
+    }
+
+    /**
+     * Whole numbers become a {@link Long}, numbers with a fraction are converted to text and anything else is text.
+     */
+    private static Object headerValue(final Object value) {
+        final Object result;
+
+        if (NUMBER.equals(Js.typeof(value))) {
+            final double number = Js.asDouble(value);
+            final long longValue = (long) number;
+            result = longValue == number && BrowserHttpServerJsonWriter.isSafeInteger(longValue) ?
+                (Object) longValue :
+                number(number);
+        } else {
+            result = Js.asString(value);
+        }
+
+        return result;
+    }
+
+    private static String number(final double value) {
+        final StringBuilder b = new StringBuilder();
+        BrowserHttpServerJsonWriter.number(value, b);
+        return b.toString();
+    }
+
+    private final static String NUMBER = "number";
+    private final static String STRING = "string";
+
+    private final JsPropertyMap<Object> object;
+
+    @Override
+    public String toString() {
+        return Global.JSON.stringify(this.object);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import java.util.Objects;
+
+/**
+ * Immutable options that tune the behaviour of a browser {@link walkingkooka.net.http.server.HttpServer}.
+ * Use {@link #DEFAULT} and the various setters, each returning a new instance if the value changed.
+ */
+public final class BrowserHttpServerOptions {
+
+    /**
+     * The default options, with response streaming, coalescing and time slicing disabled and no limits.
+     */
+    public final static BrowserHttpServerOptions DEFAULT = new BrowserHttpServerOptions(
+        0, // streamingChunkSize
+        false, // coalesceResponses
+        0, // maxMessageSize
+        0, // maxHeaderCount
+        0, // maxQueueDepth
+        0 // timeSliceMillis
+    );
+
+    private BrowserHttpServerOptions(final int streamingChunkSize,
+                                     final boolean coalesceResponses,
+                                     final int maxMessageSize,
+                                     final int maxHeaderCount,
+                                     final int maxQueueDepth,
+                                     final int timeSliceMillis) {
+        super();
+        this.streamingChunkSize = streamingChunkSize;
+        this.coalesceResponses = coalesceResponses;
+        this.maxMessageSize = maxMessageSize;
+        this.maxHeaderCount = maxHeaderCount;
+        this.maxQueueDepth = maxQueueDepth;
+        this.timeSliceMillis = timeSliceMillis;
+    }
+
+    // streamingChunkSize...............................................................................................
+
+    /**
+     * When greater than zero a response body longer than this many characters or bytes is streamed in chunks of this
+     * size over a dedicated {@link elemental2.dom.MessageChannel}, one chunk per turn, zero disables streaming.
+     */
+    public int streamingChunkSize() {
+        return this.streamingChunkSize;
+    }
+
+    public BrowserHttpServerOptions setStreamingChunkSize(final int streamingChunkSize) {
+        if (streamingChunkSize < 0) {
+            throw new IllegalArgumentException("Invalid streamingChunkSize " + streamingChunkSize + " < 0");
+        }
+        return this.streamingChunkSize == streamingChunkSize ?
+            this :
+            new BrowserHttpServerOptions(
+                streamingChunkSize,
+                this.coalesceResponses,
+                this.maxMessageSize,
+                this.maxHeaderCount,
+                this.maxQueueDepth,
+                this.timeSliceMillis
+            );
+    }
+
+    private final int streamingChunkSize;
+
+    // coalesceResponses................................................................................................
+
+    /**
+     * When true responses completed within the same turn are held until a microtask runs, and then posted together,
+     * as a single message for each client holding the number of responses followed by the array of responses.
+     */
+    public boolean coalesceResponses() {
+        return this.coalesceResponses;
+    }
+
+    public BrowserHttpServerOptions setCoalesceResponses(final boolean coalesceResponses) {
+        return this.coalesceResponses == coalesceResponses ?
+            this :
+            new BrowserHttpServerOptions(
+                this.streamingChunkSize,
+                coalesceResponses,
+                this.maxMessageSize,
+                this.maxHeaderCount,
+                this.maxQueueDepth,
+                this.timeSliceMillis
+            );
+    }
+
+    private final boolean coalesceResponses;
+
+    // maxMessageSize...................................................................................................
+
+    /**
+     * When greater than zero a message whose size in characters, or bytes for a binary body, is larger is answered with
+     * a 413 Payload Too Large without being parsed, zero disables the check.
+     */
+    public int maxMessageSize() {
+        return this.maxMessageSize;
+    }
+
+    public BrowserHttpServerOptions setMaxMessageSize(final int maxMessageSize) {
+        if (maxMessageSize < 0) {
+            throw new IllegalArgumentException("Invalid maxMessageSize " + maxMessageSize + " < 0");
+        }
+        return this.maxMessageSize == maxMessageSize ?
+            this :
+            new BrowserHttpServerOptions(
+                this.streamingChunkSize,
+                this.coalesceResponses,
+                maxMessageSize,
+                this.maxHeaderCount,
+                this.maxQueueDepth,
+                this.timeSliceMillis
+            );
+    }
+
+    private final int maxMessageSize;
+
+    // maxHeaderCount...................................................................................................
+
+    /**
+     * When greater than zero a request with more header values is answered with a 431 Request Header Fields Too Large
+     * without calling the handler, zero disables the check.
+     */
+    public int maxHeaderCount() {
+        return this.maxHeaderCount;
+    }
+
+    public BrowserHttpServerOptions setMaxHeaderCount(final int maxHeaderCount) {
+        if (maxHeaderCount < 0) {
+            throw new IllegalArgumentException("Invalid maxHeaderCount " + maxHeaderCount + " < 0");
+        }
+        return this.maxHeaderCount == maxHeaderCount ?
+            this :
+            new BrowserHttpServerOptions(
+                this.streamingChunkSize,
+                this.coalesceResponses,
+                this.maxMessageSize,
+                maxHeaderCount,
+                this.maxQueueDepth,
+                this.timeSliceMillis
+            );
+    }
+
+    private final int maxHeaderCount;
+
+    // maxQueueDepth....................................................................................................
+
+    /**
+     * When greater than zero a request arriving while this many requests are waiting or running is answered with a
+     * 503 Service Unavailable and a Retry-After header, and every response includes the current queue depth, zero
+     * leaves the queue unbounded.
+     */
+    public int maxQueueDepth() {
+        return this.maxQueueDepth;
+    }
+
+    public BrowserHttpServerOptions setMaxQueueDepth(final int maxQueueDepth) {
+        if (maxQueueDepth < 0) {
+            throw new IllegalArgumentException("Invalid maxQueueDepth " + maxQueueDepth + " < 0");
+        }
+        return this.maxQueueDepth == maxQueueDepth ?
+            this :
+            new BrowserHttpServerOptions(
+                this.streamingChunkSize,
+                this.coalesceResponses,
+                this.maxMessageSize,
+                this.maxHeaderCount,
+                maxQueueDepth,
+                this.timeSliceMillis
+            );
+    }
+
+    private final int maxQueueDepth;
+
+    // timeSliceMillis..................................................................................................
+
+    /**
+     * When greater than zero queued requests are handled for at most about this many milliseconds in each turn of the
+     * event loop, before yielding so timers and other messages are delivered, and then resuming in a later turn. Zero
+     * handles all queued requests in a single turn.
+     */
+    public int timeSliceMillis() {
+        return this.timeSliceMillis;
+    }
+
+    public BrowserHttpServerOptions setTimeSliceMillis(final int timeSliceMillis) {
+        if (timeSliceMillis < 0) {
+            throw new IllegalArgumentException("Invalid timeSliceMillis " + timeSliceMillis + " < 0");
+        }
+        return this.timeSliceMillis == timeSliceMillis ?
+            this :
+            new BrowserHttpServerOptions(
+                this.streamingChunkSize,
+                this.coalesceResponses,
+                this.maxMessageSize,
+                this.maxHeaderCount,
+                this.maxQueueDepth,
+                timeSliceMillis
+            );
+    }
+
+    private final int timeSliceMillis;
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+            this.streamingChunkSize,
+            this.coalesceResponses,
+            this.maxMessageSize,
+            this.maxHeaderCount,
+            this.maxQueueDepth,
+            this.timeSliceMillis
+        );
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other ||
+            other instanceof BrowserHttpServerOptions &&
+                this.equals0((BrowserHttpServerOptions) other);
+    }
+
+    private boolean equals0(final BrowserHttpServerOptions other) {
+        return this.streamingChunkSize == other.streamingChunkSize &&
+            this.coalesceResponses == other.coalesceResponses &&
+            this.maxMessageSize == other.maxMessageSize &&
+            this.maxHeaderCount == other.maxHeaderCount &&
+            this.maxQueueDepth == other.maxQueueDepth &&
+            this.timeSliceMillis == other.timeSliceMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "streamingChunkSize=" + this.streamingChunkSize +
+            ", coalesceResponses=" + this.coalesceResponses +
+            ", maxMessageSize=" + this.maxMessageSize +
+            ", maxHeaderCount=" + this.maxHeaderCount +
+            ", maxQueueDepth=" + this.maxQueueDepth +
+            ", timeSliceMillis=" + this.timeSliceMillis;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import elemental2.promise.Promise;
+import walkingkooka.Cast;
+import walkingkooka.net.http.HttpStatusCode;
+import walkingkooka.net.http.server.HttpRequest;
+import walkingkooka.net.http.server.HttpResponse;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * Adapts a function that returns a {@link Promise} to a {@link BrowserHttpServerAsyncHttpHandler}. The completion
+ * is run when the {@link Promise} settles, the error of a rejected {@link Promise} is recorded on the response so the
+ * server answers with the same bad request or internal server error as when a handler throws.
+ */
+final class BrowserHttpServerPromiseAsyncHttpHandler implements BrowserHttpServerAsyncHttpHandler {
+
+    static BrowserHttpServerPromiseAsyncHttpHandler with(final BiFunction<HttpRequest, HttpResponse, Promise<?>> handler) {
+        return new BrowserHttpServerPromiseAsyncHttpHandler(
+            Objects.requireNonNull(handler, "handler")
+        );
+    }
+
+    private BrowserHttpServerPromiseAsyncHttpHandler(final BiFunction<HttpRequest, HttpResponse, Promise<?>> handler) {
+        super();
+        this.handler = handler;
+    }
+
+    @Override
+    public void handle(final HttpRequest request,
+                       final HttpResponse response,
+                       final Runnable completion) {
+        final Promise<Object> promise = Cast.to(
+            this.handler.apply(request, response)
+        );
+        promise.then(
+            (value) -> {
+                completion.run();
+                return null;
+            },
+            (error) -> {
+                if (response instanceof BrowserHttpServerHttpResponse) {
+                    ((BrowserHttpServerHttpResponse) response).setFailure(error);
+                } else {
+                    response.setStatus(HttpStatusCode.INTERNAL_SERVER_ERROR.status());
+                }
+                completion.run();
+                return null;
+            }
+        );
+    }
+
+    private final BiFunction<HttpRequest, HttpResponse, Promise<?>> handler;
+
+    @Override
+    public String toString() {
+        return this.handler.toString();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the tasks that handle each request until they are run by {@link #drain()}, either directly or in a later turn
+ * using {@link #scheduleDrain()}. Interactive tasks run ahead of background tasks, although a background task is run
+ * after every few interactive tasks so a steady stream of interactive requests cannot starve background requests.
+ * Within a lane clients take turns, one task each, so a client offering many tasks at once cannot hold back the tasks
+ * of other clients, while the tasks of a single client run in the order they were offered.
+ * When a time slice is set, draining stops once the slice is used and the remaining tasks are run in a later turn,
+ * leaving the event loop free to deliver timers and other messages in between.
+ * The depth counts tasks that are waiting or running but not yet completed, which includes asynchronous handlers that
+ * have returned but not yet completed their response. When a maximum depth is set further tasks are refused, allowing
+ * the server to shed load rather than queueing work the client will likely abandon.
+ */
+final class BrowserHttpServerRequestQueue {
+
+    /**
+     * The number of interactive tasks run in a row while background tasks are waiting, before one background task
+     * is run.
+     */
+    // @VisibleForTesting
+    final static int INTERACTIVE_BEFORE_BACKGROUND = 4;
+
+    /**
+     * Creates a new queue, a maximum depth of zero means the queue is unbounded, while a time slice of zero runs all
+     * waiting tasks in a single turn. The clock returns the current time in milliseconds and the scheduler runs a task
+     * in a later turn.
+     */
+    static BrowserHttpServerRequestQueue with(final int maxDepth,
+                                              final int timeSliceMillis,
+                                              final LongSupplier clock,
+                                              final Consumer<Runnable> scheduler) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Invalid maxDepth " + maxDepth + " < 0");
+        }
+        if (timeSliceMillis < 0) {
+            throw new IllegalArgumentException("Invalid timeSliceMillis " + timeSliceMillis + " < 0");
+        }
+        return new BrowserHttpServerRequestQueue(
+            maxDepth,
+            timeSliceMillis,
+            Objects.requireNonNull(clock, "clock"),
+            Objects.requireNonNull(scheduler, "scheduler")
+        );
+    }
+
+    private BrowserHttpServerRequestQueue(final int maxDepth,
+                                          final int timeSliceMillis,
+                                          final LongSupplier clock,
+                                          final Consumer<Runnable> scheduler) {
+        super();
+        this.maxDepth = maxDepth;
+        this.timeSliceMillis = timeSliceMillis;
+        this.clock = clock;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Adds the task to the end of the tasks of its client in its lane, returning false without adding if the queue is
+     * full. The task is not run until {@link #drain()} is called.
+     */
+    boolean offer(final Object client,
+                  final Runnable task,
+                  final boolean background) {
+        final int maxDepth = this.maxDepth;
+        final boolean accepted = 0 == maxDepth || this.depth() < maxDepth;
+
+        if (accepted) {
+            (background ?
+                this.background :
+                this.interactive
+            ).add(client, task);
+        }
+
+        return accepted;
+    }
+
+    /**
+     * Removes a task that is still waiting, returning false if it has already run or was never offered.
+     */
+    boolean remove(final Runnable task) {
+        return this.interactive.remove(task) ||
+            this.background.remove(task);
+    }
+
+    /**
+     * Records that a running task has completed its response, freeing its place in the queue.
+     */
+    void complete() {
+        if (this.running > 0) {
+            this.running--;
+        }
+    }
+
+    /**
+     * The number of tasks waiting or running that have not yet completed.
+     */
+    int depth() {
+        return this.interactive.size() + this.background.size() + this.running;
+    }
+
+    /**
+     * Runs waiting tasks until none remain or the time slice is used, in which case the remaining tasks are drained
+     * in a later turn. A task offered by a running task is run after it rather than recursively.
+     */
+    void drain() {
+        if (false == this.draining) {
+            this.draining = true;
+            try {
+                final int timeSliceMillis = this.timeSliceMillis;
+                final long start = timeSliceMillis > 0 ?
+                    this.clock.getAsLong() :
+                    0;
+
+                for (; ; ) {
+                    final Runnable task = this.next();
+                    if (null == task) {
+                        break;
+                    }
+                    this.running++;
+                    task.run();
+
+                    if (timeSliceMillis > 0 && this.isWaiting() && this.clock.getAsLong() - start >= timeSliceMillis) {
+                        this.scheduleDrain();
+                        break;
+                    }
+                }
+            } finally {
+                this.draining = false;
+            }
+        }
+    }
+
+    private boolean isWaiting() {
+        return false == this.interactive.isEmpty() || false == this.background.isEmpty();
+    }
+
+    /**
+     * Schedules a drain in a later turn, unless one is already scheduled. Tasks offered before the drain runs, such as
+     * those from a burst of messages, are then run together ordered by their lane.
+     */
+    void scheduleDrain() {
+        if (false == this.drainScheduled) {
+            this.drainScheduled = true;
+            this.scheduler.accept(this::scheduledDrain);
+        }
+    }
+
+    private void scheduledDrain() {
+        this.drainScheduled = false;
+        this.drain();
+    }
+
+    /**
+     * Removes the next task to run, or returns null if none are waiting.
+     */
+    private Runnable next() {
+        final BrowserHttpServerRequestQueueLane interactive = this.interactive;
+        final BrowserHttpServerRequestQueueLane background = this.background;
+
+        final Runnable next;
+        if (background.isEmpty()) {
+            this.interactiveInARow = 0;
+            next = interactive.poll();
+        } else {
+            if (interactive.isEmpty() || this.interactiveInARow >= INTERACTIVE_BEFORE_BACKGROUND) {
+                this.interactiveInARow = 0;
+                next = background.poll();
+            } else {
+                this.interactiveInARow++;
+                next = interactive.poll();
+            }
+        }
+
+        return next;
+    }
+
+    private final int maxDepth;
+
+    private final int timeSliceMillis;
+
+    private final LongSupplier clock;
+
+    private final Consumer<Runnable> scheduler;
+
+    private final BrowserHttpServerRequestQueueLane interactive = BrowserHttpServerRequestQueueLane.empty();
+
+    private final BrowserHttpServerRequestQueueLane background = BrowserHttpServerRequestQueueLane.empty();
+
+    /**
+     * The number of interactive tasks run since the last background task while background tasks were waiting.
+     */
+    private int interactiveInARow;
+
+    private int running;
+
+    private boolean draining;
+
+    private boolean drainScheduled;
+
+    @Override
+    public String toString() {
+        return "depth=" + this.depth() +
+            (this.maxDepth > 0 ?
+                "/" + this.maxDepth :
+                "");
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import walkingkooka.collect.map.Maps;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * One lane of the {@link BrowserHttpServerRequestQueue}, holding the waiting tasks of each client separately. Clients
+ * take turns, one task each, so a client that posts many requests at once cannot delay the requests of other clients
+ * until all of its own have run. Tasks from the same client run in the order they were added.
+ */
+final class BrowserHttpServerRequestQueueLane {
+
+    static BrowserHttpServerRequestQueueLane empty() {
+        return new BrowserHttpServerRequestQueueLane();
+    }
+
+    private BrowserHttpServerRequestQueueLane() {
+        super();
+    }
+
+    /**
+     * Adds the task to the end of the tasks of its client. A client without any waiting tasks takes its turn after all
+     * other clients with waiting tasks.
+     */
+    void add(final Object client,
+             final Runnable task) {
+        final Object key = key(client);
+
+        Deque<Runnable> tasks = this.clientToTasks.get(key);
+        if (null == tasks) {
+            tasks = new ArrayDeque<>();
+            this.clientToTasks.put(key, tasks);
+            this.turns.addLast(key);
+        }
+        tasks.addLast(task);
+        this.size++;
+    }
+
+    /**
+     * Removes the next task of the client whose turn it is, or returns null if none are waiting. A client with more
+     * waiting tasks moves to the end of the turns.
+     */
+    Runnable poll() {
+        final Object key = this.turns.pollFirst();
+
+        Runnable task = null;
+        if (null != key) {
+            final Deque<Runnable> tasks = this.clientToTasks.get(key);
+            task = tasks.pollFirst();
+
+            if (tasks.isEmpty()) {
+                this.clientToTasks.remove(key);
+            } else {
+                this.turns.addLast(key);
+            }
+            this.size--;
+        }
+
+        return task;
+    }
+
+    /**
+     * Removes a waiting task, returning false if it is not waiting in this lane.
+     */
+    boolean remove(final Runnable task) {
+        boolean removed = false;
+
+        for (final Map.Entry<Object, Deque<Runnable>> clientAndTasks : this.clientToTasks.entrySet()) {
+            final Deque<Runnable> tasks = clientAndTasks.getValue();
+            if (tasks.remove(task)) {
+                if (tasks.isEmpty()) {
+                    final Object key = clientAndTasks.getKey();
+                    this.clientToTasks.remove(key);
+                    this.turns.remove(key);
+                }
+                this.size--;
+                removed = true;
+                break;
+            }
+        }
+
+        return removed;
+    }
+
+    boolean isEmpty() {
+        return 0 == this.size;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Tasks without a client share a single turn.
+     */
+    private static Object key(final Object client) {
+        return null != client ?
+            client :
+            NO_CLIENT;
+    }
+
+    private final static Object NO_CLIENT = new Object();
+
+    /**
+     * The waiting tasks of each client, only clients with at least one waiting task are present.
+     */
+    private final Map<Object, Deque<Runnable>> clientToTasks = Maps.hash();
+
+    /**
+     * The clients with waiting tasks, the client whose turn is next first.
+     */
+    private final Deque<Object> turns = new ArrayDeque<>();
+
+    private int size;
+
+    @Override
+    public String toString() {
+        return "size=" + this.size;
+    }
+}
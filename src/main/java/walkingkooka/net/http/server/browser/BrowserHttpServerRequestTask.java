@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import walkingkooka.tree.json.JsonNode;
+
+import java.util.Objects;
+
+/**
+ * A request with an id that is waiting in or running from the {@link BrowserHttpServerRequestQueue}, remembering the
+ * client that sent it so an abort message from the same client can find it. Ids are only unique for each client.
+ */
+final class BrowserHttpServerRequestTask implements Runnable {
+
+    static BrowserHttpServerRequestTask with(final Object client,
+                                             final BrowserHttpServerHttpRequest request,
+                                             final Runnable handle,
+                                             final Runnable drop) {
+        return new BrowserHttpServerRequestTask(
+            client,
+            Objects.requireNonNull(request, "request"),
+            Objects.requireNonNull(handle, "handle"),
+            Objects.requireNonNull(drop, "drop")
+        );
+    }
+
+    private BrowserHttpServerRequestTask(final Object client,
+                                         final BrowserHttpServerHttpRequest request,
+                                         final Runnable handle,
+                                         final Runnable drop) {
+        super();
+        this.client = client;
+        this.request = request;
+        this.handle = handle;
+        this.drop = drop;
+    }
+
+    /**
+     * Tests if this task is for the request with the given id from the given client.
+     */
+    boolean isRequest(final Object client,
+                      final JsonNode id) {
+        return this.isClient(client) &&
+            this.request.id()
+                .map(id::equals)
+                .orElse(false);
+    }
+
+    /**
+     * Tests if this task is for a request from the given client.
+     */
+    boolean isClient(final Object client) {
+        return this.client == client;
+    }
+
+    BrowserHttpServerHttpRequest request() {
+        return this.request;
+    }
+
+    /**
+     * Handles the request, called when the task leaves the queue.
+     */
+    @Override
+    public void run() {
+        this.handle.run();
+    }
+
+    /**
+     * Completes a request removed from the queue before it was handled.
+     */
+    void drop() {
+        this.drop.run();
+    }
+
+    private final Object client;
+
+    private final BrowserHttpServerHttpRequest request;
+
+    private final Runnable handle;
+
+    private final Runnable drop;
+
+    @Override
+    public String toString() {
+        return this.request.toString();
+    }
+}
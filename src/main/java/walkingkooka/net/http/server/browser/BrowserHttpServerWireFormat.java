@@ -0,0 +1,294 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import elemental2.core.ArrayBuffer;
+import elemental2.core.JsArray;
+import elemental2.core.Transferable;
+import jsinterop.base.Js;
+import jsinterop.base.JsArrayLike;
+import jsinterop.base.JsPropertyMap;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.tree.json.JsonArray;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonPropertyName;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Controls the form of the messages holding the request and the response posted back to the client.
+ */
+enum BrowserHttpServerWireFormat {
+
+    /**
+     * The request is JSON text and the response is posted as JSON text on a single line without any extra whitespace.
+     * This is the default and minimizes the size of the message and the effort to produce it.
+     */
+    COMPACT_JSON {
+        @Override
+        Object response(final BrowserHttpServerHttpResponse response,
+                        final List<Transferable> transfer) {
+            final StringBuilder b = new StringBuilder();
+            response.writeJson(b);
+            return b.toString();
+        }
+
+        @Override
+        Object batchResponse(final List<BrowserHttpServerHttpResponse> responses,
+                             final List<Transferable> transfer) {
+            final StringBuilder b = new StringBuilder();
+            b.append('[');
+
+            String separator = "";
+            for (final BrowserHttpServerHttpResponse response : responses) {
+                b.append(separator);
+                response.writeJson(b);
+                separator = ",";
+            }
+
+            b.append(']');
+            return b.toString();
+        }
+
+        @Override
+        Object coalescedResponse(final List<BrowserHttpServerHttpResponse> responses,
+                                 final List<Transferable> transfer) {
+            return "{\"" + COALESCED + "\":" + responses.size() +
+                ",\"" + RESPONSES + "\":" + this.batchResponse(responses, transfer) +
+                "}";
+        }
+    },
+
+    /**
+     * The request is JSON text and the response is posted as indented multi-line JSON text, useful when debugging.
+     */
+    PRETTY_JSON {
+        @Override
+        Object response(final BrowserHttpServerHttpResponse response,
+                        final List<Transferable> transfer) {
+            return response.toString();
+        }
+
+        @Override
+        Object batchResponse(final List<BrowserHttpServerHttpResponse> responses,
+                             final List<Transferable> transfer) {
+            return array(responses)
+                .toString();
+        }
+
+        @Override
+        Object coalescedResponse(final List<BrowserHttpServerHttpResponse> responses,
+                                 final List<Transferable> transfer) {
+            return JsonNode.object()
+                .setChildren(
+                    Lists.of(
+                        JsonNode.number(responses.size())
+                            .setName(JsonPropertyName.with(COALESCED)),
+                        array(responses)
+                            .setName(JsonPropertyName.with(RESPONSES))
+                    )
+                ).toString();
+        }
+    },
+
+    /**
+     * Both the request and the response are plain javascript objects, the structured clone performed by
+     * <code>postMessage</code> replaces converting to and from JSON text. A binary response body is posted as an
+     * {@link ArrayBuffer} which is also added to the transfer list, moving rather than copying it to the client.
+     * This is only usable within a browser.
+     */
+    STRUCTURED_CLONE {
+        /**
+         * The size of a javascript object is approximated by the size of its body, or the total for a batch.
+         */
+        @Override
+        long size(final Object data) {
+            long size = 0;
+
+            if (JsArray.isArray(data)) {
+                final JsArrayLike<Object> array = Js.asArrayLike(data);
+                final int count = array.getLength();
+                for (int i = 0; i < count; i++) {
+                    size += bodySize(array.getAt(i));
+                }
+            } else {
+                size = bodySize(data);
+            }
+
+            return size;
+        }
+
+        private long bodySize(final Object request) {
+            final Object body = null != request ?
+                Js.asPropertyMap(request).get(BODY) :
+                null;
+            return null == body ?
+                0 :
+                BrowserHttpServerArrayBuffers.isBinary(body) ?
+                    BrowserHttpServerArrayBuffers.byteLength(body) :
+                    Js.asString(body).length();
+        }
+
+        @Override
+        boolean isBatch(final Object data) {
+            return JsArray.isArray(data);
+        }
+
+        @Override
+        List<BrowserHttpServerHttpRequest> batch(final Object data) {
+            return BrowserHttpServerNativeHttpRequest.batch(data);
+        }
+
+        @Override
+        BrowserHttpServerHttpRequest request(final Object data) {
+            return BrowserHttpServerNativeHttpRequest.with(data);
+        }
+
+        @Override
+        Object response(final BrowserHttpServerHttpResponse response,
+                        final List<Transferable> transfer) {
+            final JsPropertyMap<Object> message = response.toJsPropertyMap();
+
+            final Optional<byte[]> body = response.binaryBody();
+            if (body.isPresent()) {
+                final ArrayBuffer buffer = BrowserHttpServerArrayBuffers.arrayBuffer(body.get());
+                message.set(BODY, buffer);
+                transfer.add(buffer);
+            }
+
+            return message;
+        }
+
+        @Override
+        Object batchResponse(final List<BrowserHttpServerHttpResponse> responses,
+                             final List<Transferable> transfer) {
+            final JsArray<Object> array = new JsArray<>();
+            for (final BrowserHttpServerHttpResponse response : responses) {
+                array.push(
+                    this.response(
+                        response,
+                        transfer
+                    )
+                );
+            }
+            return array;
+        }
+
+        @Override
+        Object coalescedResponse(final List<BrowserHttpServerHttpResponse> responses,
+                                 final List<Transferable> transfer) {
+            final JsPropertyMap<Object> message = JsPropertyMap.of();
+            message.set(
+                COALESCED,
+                (double) responses.size()
+            );
+            message.set(
+                RESPONSES,
+                this.batchResponse(
+                    responses,
+                    transfer
+                )
+            );
+            return message;
+        }
+    };
+
+    /**
+     * Returns the size of the message data without parsing it, by default the data is JSON text and its size is the
+     * number of characters.
+     */
+    long size(final Object data) {
+        return ((String) data).length();
+    }
+
+    /**
+     * Tests if the message data holds a batch of requests rather than a single request, by default the data is JSON
+     * text and a batch is an array.
+     */
+    boolean isBatch(final Object data) {
+        return BrowserHttpServerHttpRequest.isBatch((String) data);
+    }
+
+    /**
+     * Converts message data holding a batch into a {@link BrowserHttpServerHttpRequest} for each request.
+     */
+    List<BrowserHttpServerHttpRequest> batch(final Object data) {
+        return BrowserHttpServerHttpRequest.parseBatch((String) data);
+    }
+
+    /**
+     * Converts the message data into a {@link BrowserHttpServerHttpRequest}, by default the data is JSON text.
+     */
+    BrowserHttpServerHttpRequest request(final Object data) {
+        return BrowserHttpServerHttpRequest.parse((String) data);
+    }
+
+    private final static String BODY = "body";
+
+    /**
+     * Only formats that post javascript objects are able to carry binary values.
+     */
+    final boolean isBinarySupported() {
+        return STRUCTURED_CLONE == this;
+    }
+
+    /**
+     * Produces the message that will be posted back to the client, any values that should be transferred rather
+     * than copied are added to the transfer list.
+     */
+    abstract Object response(final BrowserHttpServerHttpResponse response,
+                             final List<Transferable> transfer);
+
+    /**
+     * Produces a single message holding all the responses for a batch, in the same order as the requests.
+     */
+    abstract Object batchResponse(final List<BrowserHttpServerHttpResponse> responses,
+                                  final List<Transferable> transfer);
+
+    /**
+     * Produces a single message holding several responses to separate request messages completed in the same turn,
+     * in the order they completed. The message is an object whose first property holds the number of responses,
+     * followed by the array of responses, so it is never mistaken for a single response or the array answering a
+     * batch.
+     */
+    abstract Object coalescedResponse(final List<BrowserHttpServerHttpResponse> responses,
+                                      final List<Transferable> transfer);
+
+    /**
+     * The property holding the number of responses in a coalesced message, always the first property.
+     */
+    final static String COALESCED = "coalesced";
+
+    /**
+     * The property holding the array of responses in a coalesced message.
+     */
+    final static String RESPONSES = "responses";
+
+    /**
+     * Creates a {@link JsonArray} holding the JSON object of each response.
+     */
+    private static JsonArray array(final List<BrowserHttpServerHttpResponse> responses) {
+        final List<JsonNode> objects = Lists.array();
+        for (final BrowserHttpServerHttpResponse response : responses) {
+            objects.add(response.toJsonObject());
+        }
+        return JsonNode.array()
+            .setChildren(objects);
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import elemental2.core.ArrayBuffer;
+import elemental2.core.ArrayBufferView;
+import elemental2.core.JsArray;
+import elemental2.core.Transferable;
+import elemental2.dom.DomGlobal;
+import elemental2.dom.Event;
+import elemental2.dom.EventListener;
+import elemental2.dom.MessageEvent;
+import elemental2.dom.MessagePort;
+import elemental2.dom.Worker;
+import jsinterop.base.Js;
+import jsinterop.base.JsArrayLike;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.net.http.server.HttpServer;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A {@link HttpServer} that runs on the client side, spreading request messages received on a {@link MessagePort}
+ * across several {@link Worker workers}, each expected to be running a {@link BrowserHttpServer}. Each request is
+ * posted to the worker with the least outstanding requests, and every response message from any worker is posted back
+ * unchanged to the {@link MessagePort}, which is typically one end of a {@link elemental2.dom.MessageChannel} whose
+ * other end is used by the client. Request ids are not required, as each worker answers only its own requests.
+ * Binary bodies of structured clone messages are transferred in both directions rather than copied.
+ */
+final class BrowserHttpServerWorkerPool implements HttpServer {
+
+    /**
+     * Creates a new {@link BrowserHttpServerWorkerPool} with one worker per hardware thread reported by the browser.
+     */
+    static BrowserHttpServerWorkerPool with(final MessagePort port,
+                                            final Supplier<Worker> workerFactory) {
+        return with(
+            port,
+            workerFactory,
+            hardwareConcurrency()
+        );
+    }
+
+    /**
+     * Returns <code>navigator.hardwareConcurrency</code> or 1 if that is not available.
+     */
+    private static int hardwareConcurrency() {
+        final Object value = null != DomGlobal.navigator ?
+            Js.asPropertyMap(DomGlobal.navigator).get("hardwareConcurrency") :
+            null;
+        return null != value ?
+            Math.max(1, (int) Js.asDouble(value)) :
+            1;
+    }
+
+    /**
+     * Creates a new {@link BrowserHttpServerWorkerPool} with the given number of workers.
+     */
+    static BrowserHttpServerWorkerPool with(final MessagePort port,
+                                            final Supplier<Worker> workerFactory,
+                                            final int workerCount) {
+        Objects.requireNonNull(port, "port");
+        Objects.requireNonNull(workerFactory, "workerFactory");
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Invalid workerCount " + workerCount + " <= 0");
+        }
+
+        return new BrowserHttpServerWorkerPool(
+            port,
+            workerFactory,
+            workerCount
+        );
+    }
+
+    /**
+     * Use factory
+     */
+    private BrowserHttpServerWorkerPool(final MessagePort port,
+                                        final Supplier<Worker> workerFactory,
+                                        final int workerCount) {
+        super();
+        this.port = port;
+        this.workerFactory = workerFactory;
+        this.workerCount = workerCount;
+    }
+
+    // HttpServer.......................................................................................................
+
+    /**
+     * Starts the pool by creating all workers and adding the message event listeners. The port is also started, as a
+     * port from a {@link elemental2.dom.MessageChannel} delivers no messages until started.
+     */
+    @Override
+    public void start() {
+        if (null != this.workers) {
+            throw new IllegalStateException("Server already running");
+        }
+
+        final int count = this.workerCount;
+        final Worker[] workers = new Worker[count];
+        final EventListener[] workerListeners = new EventListener[count];
+
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            final Worker worker = this.workerFactory.get();
+            final EventListener listener = (event) -> this.handleWorkerMessageEvent(index, Js.cast(event));
+            worker.addEventListener(MESSAGE, listener, false);
+
+            workers[i] = worker;
+            workerListeners[i] = listener;
+        }
+
+        this.workers = workers;
+        this.workerListeners = workerListeners;
+        this.outstanding = new int[count];
+
+        final MessagePort port = this.port;
+        port.addEventListener(MESSAGE, this.portListener, false);
+        port.start();
+    }
+
+    /**
+     * Stops the pool by removing all message event listeners and terminating the workers.
+     */
+    @Override
+    public void stop() {
+        final Worker[] workers = this.workers;
+        if (null == workers) {
+            throw new IllegalStateException("Server not running");
+        }
+
+        this.port.removeEventListener(MESSAGE, this.portListener);
+
+        final int count = workers.length;
+        for (int i = 0; i < count; i++) {
+            final Worker worker = workers[i];
+            worker.removeEventListener(MESSAGE, this.workerListeners[i]);
+            worker.terminate();
+        }
+
+        this.workers = null;
+        this.workerListeners = null;
+        this.outstanding = null;
+    }
+
+    private final static String MESSAGE = "message";
+
+    /**
+     * The port receiving requests and posting back responses.
+     */
+    private final MessagePort port;
+
+    private final EventListener portListener = this::handleEvent;
+
+    private void handleEvent(final Event event) {
+        this.handleMessageEvent(Js.cast(event));
+    }
+
+    /**
+     * Posts the request to the worker with the least outstanding requests. An abort message is posted to every worker
+     * without being counted, as it is never answered and only the worker running the request acts upon it.
+     */
+    // @VisibleForTesting
+    void handleMessageEvent(final MessageEvent<?> event) {
+        final Transferable[] transfer = transfer(event);
+
+        if (isAbort(event.data)) {
+            for (final Worker worker : this.workers) {
+                postMessage(
+                    worker,
+                    event.data,
+                    transfer
+                );
+            }
+        } else {
+            final int[] outstanding = this.outstanding;
+
+            int least = 0;
+            final int count = outstanding.length;
+            for (int i = 1; i < count; i++) {
+                if (outstanding[i] < outstanding[least]) {
+                    least = i;
+                }
+            }
+
+            outstanding[least]++;
+
+            postMessage(
+                this.workers[least],
+                event.data,
+                transfer
+            );
+        }
+    }
+
+    private static void postMessage(final Worker worker,
+                                    final Object data,
+                                    final Transferable[] transfer) {
+        if (transfer.length == 0) {
+            worker.postMessage(data);
+        } else {
+            worker.postMessage(data, transfer);
+        }
+    }
+
+    /**
+     * Tests if the message is an abort message. Only short JSON text mentioning abort is parsed, so requests are
+     * forwarded without parsing.
+     */
+    // @VisibleForTesting
+    static boolean isAbort(final Object data) {
+        boolean abort = false;
+
+        try {
+            if (data instanceof String) {
+                final String text = (String) data;
+                abort = text.length() <= MAX_ABORT_LENGTH &&
+                    text.contains(ABORT) &&
+                    false == BrowserHttpServerHttpRequest.isBatch(text) &&
+                    BrowserHttpServerHttpRequest.parse(text)
+                        .abortId()
+                        .isPresent();
+            } else {
+                abort = null != data &&
+                    OBJECT.equals(Js.typeof(data)) &&
+                    false == JsArray.isArray(data) &&
+                    Js.asPropertyMap(data).has(ABORT_PROPERTY);
+            }
+        } catch (final RuntimeException invalid) {
+            // invalid messages are forwarded and answered by a worker
+        }
+
+        return abort;
+    }
+
+    /**
+     * Abort messages only hold the id, this leaves room for a long string id.
+     */
+    private final static int MAX_ABORT_LENGTH = 256;
+
+    private final static String ABORT_PROPERTY = "abort";
+
+    private final static String ABORT = '"' + ABORT_PROPERTY + '"';
+
+    /**
+     * Posts the response from the worker back to the client. A coalesced message answers several request messages,
+     * so the outstanding count of the worker drops by the number of responses it holds.
+     */
+    // @VisibleForTesting
+    void handleWorkerMessageEvent(final int index,
+                                  final MessageEvent<?> event) {
+        final Object data = event.data;
+
+        final int[] outstanding = this.outstanding;
+        if (null != outstanding) {
+            outstanding[index] = Math.max(
+                0,
+                outstanding[index] - responseCount(data)
+            );
+        }
+
+        final Transferable[] transfer = transfer(event);
+        if (transfer.length == 0) {
+            this.port.postMessage(data);
+        } else {
+            this.port.postMessage(data, transfer);
+        }
+    }
+
+    /**
+     * Returns the number of request messages answered by a response message. Only a coalesced message, whose first
+     * property holds the count, answers more than one, a batch array answers the one batch message.
+     */
+    // @VisibleForTesting
+    static int responseCount(final Object data) {
+        int count = 1;
+
+        if (data instanceof String) {
+            final String text = (String) data;
+            final int length = text.length();
+
+            int i = skipWhitespace(text, 0);
+            if (i < length && '{' == text.charAt(i)) {
+                i = skipWhitespace(text, i + 1);
+                if (text.startsWith(COALESCED, i)) {
+                    i = skipWhitespace(text, i + COALESCED.length());
+                    if (i < length && ':' == text.charAt(i)) {
+                        i = skipWhitespace(text, i + 1);
+
+                        int value = 0;
+                        int digits = 0;
+                        while (i < length && Character.isDigit(text.charAt(i))) {
+                            value = value * 10 + (text.charAt(i) - '0');
+                            digits++;
+                            i++;
+                        }
+                        if (digits > 0) {
+                            count = value;
+                        }
+                    }
+                }
+            }
+        } else {
+            if (null != data &&
+                OBJECT.equals(Js.typeof(data)) &&
+                false == JsArray.isArray(data)) {
+                final Object value = Js.asPropertyMap(data)
+                    .get(BrowserHttpServerWireFormat.COALESCED);
+                if (null != value) {
+                    count = (int) Js.asDouble(value);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private static int skipWhitespace(final String text,
+                                      final int start) {
+        int i = start;
+        final int length = text.length();
+        while (i < length && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private final static String COALESCED = '"' + BrowserHttpServerWireFormat.COALESCED + '"';
+
+    /**
+     * Any ports that arrived with the message, such as the port for a streamed response body, are transferred again,
+     * along with the buffer of any binary body so it is moved rather than copied.
+     */
+    private static Transferable[] transfer(final MessageEvent<?> event) {
+        final List<Transferable> transfer = Lists.array();
+
+        final Object ports = event.ports;
+        if (null != ports) {
+            final JsArrayLike<Object> array = Js.asArrayLike(ports);
+            final int length = array.getLength();
+            for (int i = 0; i < length; i++) {
+                transfer.add(Js.cast(array.getAt(i)));
+            }
+        }
+
+        // JSON text never holds a binary body
+        final Object data = event.data;
+        if (null != data && false == data instanceof String) {
+            // a coalesced message holds its responses in an array property
+            final Object responses = JsArray.isArray(data) ?
+                data :
+                OBJECT.equals(Js.typeof(data)) ?
+                    Js.asPropertyMap(data).get(BrowserHttpServerWireFormat.RESPONSES) :
+                    null;
+            if (null != responses && JsArray.isArray(responses)) {
+                final JsArrayLike<Object> array = Js.asArrayLike(responses);
+                final int length = array.getLength();
+                for (int i = 0; i < length; i++) {
+                    bodyBuffer(array.getAt(i), transfer);
+                }
+            } else {
+                bodyBuffer(data, transfer);
+            }
+        }
+
+        return transfer.isEmpty() ?
+            NO_TRANSFER :
+            transfer.toArray(new Transferable[0]);
+    }
+
+    /**
+     * Adds the buffer holding the binary body of a request or response object, each buffer may only appear once.
+     */
+    private static void bodyBuffer(final Object message,
+                                   final List<Transferable> transfer) {
+        if (null != message && OBJECT.equals(Js.typeof(message))) {
+            final Object body = Js.asPropertyMap(message)
+                .get(BODY);
+            if (null != body && BrowserHttpServerArrayBuffers.isBinary(body)) {
+                final ArrayBuffer buffer = body instanceof ArrayBuffer ?
+                    (ArrayBuffer) body :
+                    Js.<ArrayBufferView>cast(body).buffer;
+                if (false == transfer.contains(buffer)) {
+                    transfer.add(buffer);
+                }
+            }
+        }
+    }
+
+    private final static String OBJECT = "object";
+
+    private final static String BODY = "body";
+
+    private final static Transferable[] NO_TRANSFER = new Transferable[0];
+
+    /**
+     * Creates each worker.
+     */
+    private final Supplier<Worker> workerFactory;
+
+    private final int workerCount;
+
+    /**
+     * The workers, only set while running.
+     */
+    private Worker[] workers;
+
+    private EventListener[] workerListeners;
+
+    /**
+     * The number of requests posted to each worker that have not yet been answered.
+     */
+    // @VisibleForTesting
+    int[] outstanding;
+
+    @Override
+    public String toString() {
+        return this.workerCount + " workers";
+    }
+}
@@ -17,13 +17,23 @@
 
 package walkingkooka.net.http.server.browser;
 
+import elemental2.dom.AbortSignal;
+import elemental2.dom.EventTarget;
 import elemental2.dom.MessageEvent;
 import elemental2.dom.MessagePort;
+import elemental2.dom.Worker;
+import elemental2.promise.Promise;
+import walkingkooka.Cast;
 import walkingkooka.net.http.server.HttpHandler;
+import walkingkooka.net.http.server.HttpRequest;
+import walkingkooka.net.http.server.HttpResponse;
 import walkingkooka.net.http.server.HttpServer;
 import walkingkooka.reflect.PublicStaticHelper;
 
+import java.util.Objects;
+import java.util.function.BiFunction;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Provides a factory for several {@link HttpServer} implementations that receive messages holding the request and
@@ -32,20 +42,249 @@ import java.util.function.Predicate;
 public final class BrowserHttpServers implements PublicStaticHelper {
 
     /**
-     * {@see BrowserHttpServer}
+     * {@see BrowserHttpServer}, responses are posted as compact single line JSON text.
      */
     public static HttpServer messagePort(final HttpHandler httpHandler,
                                          final MessagePort port,
                                          final Predicate<MessageEvent<String>> messageFilter,
                                          final String postMessageTargetOrigin) {
+        return messagePort(
+            httpHandler,
+            port,
+            messageFilter,
+            postMessageTargetOrigin,
+            BrowserHttpServerOptions.DEFAULT
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServer}, responses are posted as compact single line JSON text.
+     */
+    public static HttpServer messagePort(final HttpHandler httpHandler,
+                                         final MessagePort port,
+                                         final Predicate<MessageEvent<String>> messageFilter,
+                                         final String postMessageTargetOrigin,
+                                         final BrowserHttpServerOptions options) {
         return BrowserHttpServer.with(
             httpHandler,
             port,
             messageFilter,
-            postMessageTargetOrigin
+            postMessageTargetOrigin,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            options
         );
     }
 
+    /**
+     * {@see BrowserHttpServer}, responses are posted as pretty printed JSON text, which is useful when debugging.
+     */
+    public static HttpServer messagePortPrettyJson(final HttpHandler httpHandler,
+                                                   final MessagePort port,
+                                                   final Predicate<MessageEvent<String>> messageFilter,
+                                                   final String postMessageTargetOrigin) {
+        return messagePortPrettyJson(
+            httpHandler,
+            port,
+            messageFilter,
+            postMessageTargetOrigin,
+            BrowserHttpServerOptions.DEFAULT
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServer}, responses are posted as pretty printed JSON text, which is useful when debugging.
+     */
+    public static HttpServer messagePortPrettyJson(final HttpHandler httpHandler,
+                                                   final MessagePort port,
+                                                   final Predicate<MessageEvent<String>> messageFilter,
+                                                   final String postMessageTargetOrigin,
+                                                   final BrowserHttpServerOptions options) {
+        return BrowserHttpServer.with(
+            httpHandler,
+            port,
+            messageFilter,
+            postMessageTargetOrigin,
+            BrowserHttpServerWireFormat.PRETTY_JSON,
+            options
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServer}, requests and responses are plain javascript objects rather than JSON text, leaving
+     * the browser's structured clone to copy them between the client and the server.
+     */
+    public static HttpServer messagePortStructuredClone(final HttpHandler httpHandler,
+                                                        final MessagePort port,
+                                                        final Predicate<MessageEvent<Object>> messageFilter,
+                                                        final String postMessageTargetOrigin) {
+        return messagePortStructuredClone(
+            httpHandler,
+            port,
+            messageFilter,
+            postMessageTargetOrigin,
+            BrowserHttpServerOptions.DEFAULT
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServer}, requests and responses are plain javascript objects rather than JSON text, leaving
+     * the browser's structured clone to copy them between the client and the server.
+     */
+    public static HttpServer messagePortStructuredClone(final HttpHandler httpHandler,
+                                                        final MessagePort port,
+                                                        final Predicate<MessageEvent<Object>> messageFilter,
+                                                        final String postMessageTargetOrigin,
+                                                        final BrowserHttpServerOptions options) {
+        return BrowserHttpServer.with(
+            httpHandler,
+            port,
+            Cast.to(messageFilter),
+            postMessageTargetOrigin,
+            BrowserHttpServerWireFormat.STRUCTURED_CLONE,
+            options
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServer}, the handler returns a {@link Promise} and the response is posted as compact single line
+     * JSON text when the {@link Promise} settles, leaving the worker free to handle other messages while waiting.
+     */
+    public static HttpServer messagePortAsync(final BiFunction<HttpRequest, HttpResponse, Promise<?>> httpHandler,
+                                              final MessagePort port,
+                                              final Predicate<MessageEvent<String>> messageFilter,
+                                              final String postMessageTargetOrigin,
+                                              final BrowserHttpServerOptions options) {
+        return BrowserHttpServer.withAsync(
+            BrowserHttpServerPromiseAsyncHttpHandler.with(httpHandler),
+            port,
+            messageFilter,
+            postMessageTargetOrigin,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            options
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServer}, the handler returns a {@link Promise} and the response is posted as pretty printed
+     * JSON text when the {@link Promise} settles.
+     */
+    public static HttpServer messagePortPrettyJsonAsync(final BiFunction<HttpRequest, HttpResponse, Promise<?>> httpHandler,
+                                                        final MessagePort port,
+                                                        final Predicate<MessageEvent<String>> messageFilter,
+                                                        final String postMessageTargetOrigin,
+                                                        final BrowserHttpServerOptions options) {
+        return BrowserHttpServer.withAsync(
+            BrowserHttpServerPromiseAsyncHttpHandler.with(httpHandler),
+            port,
+            messageFilter,
+            postMessageTargetOrigin,
+            BrowserHttpServerWireFormat.PRETTY_JSON,
+            options
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServer}, the handler returns a {@link Promise} and requests and responses are plain javascript
+     * objects, the response being posted when the {@link Promise} settles.
+     */
+    public static HttpServer messagePortStructuredCloneAsync(final BiFunction<HttpRequest, HttpResponse, Promise<?>> httpHandler,
+                                                             final MessagePort port,
+                                                             final Predicate<MessageEvent<Object>> messageFilter,
+                                                             final String postMessageTargetOrigin,
+                                                             final BrowserHttpServerOptions options) {
+        return BrowserHttpServer.withAsync(
+            BrowserHttpServerPromiseAsyncHttpHandler.with(httpHandler),
+            port,
+            Cast.to(messageFilter),
+            postMessageTargetOrigin,
+            BrowserHttpServerWireFormat.STRUCTURED_CLONE,
+            options
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServer}, serving every port connected to a shared worker from the one {@link HttpHandler}, with
+     * responses posted as compact single line JSON text back to the port that sent the request. The connect target is
+     * typically the global scope of the shared worker.
+     */
+    public static HttpServer sharedWorker(final HttpHandler httpHandler,
+                                          final EventTarget connectTarget,
+                                          final Predicate<MessageEvent<String>> messageFilter,
+                                          final BrowserHttpServerOptions options) {
+        return BrowserHttpServer.sharedWorker(
+            BrowserHttpServerHttpHandlerAsyncHttpHandler.with(httpHandler),
+            connectTarget,
+            messageFilter,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            options
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServer}, serving every port connected to a shared worker from the one {@link HttpHandler}, with
+     * requests and responses being plain javascript objects.
+     */
+    public static HttpServer sharedWorkerStructuredClone(final HttpHandler httpHandler,
+                                                         final EventTarget connectTarget,
+                                                         final Predicate<MessageEvent<Object>> messageFilter,
+                                                         final BrowserHttpServerOptions options) {
+        return BrowserHttpServer.sharedWorker(
+            BrowserHttpServerHttpHandlerAsyncHttpHandler.with(httpHandler),
+            connectTarget,
+            Cast.to(messageFilter),
+            BrowserHttpServerWireFormat.STRUCTURED_CLONE,
+            options
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServerWorkerPool}, creating one worker for each hardware thread reported by the browser.
+     */
+    public static HttpServer workerPool(final MessagePort port,
+                                        final Supplier<Worker> workerFactory) {
+        return BrowserHttpServerWorkerPool.with(
+            port,
+            workerFactory
+        );
+    }
+
+    /**
+     * {@see BrowserHttpServerWorkerPool}
+     */
+    public static HttpServer workerPool(final MessagePort port,
+                                        final Supplier<Worker> workerFactory,
+                                        final int workerCount) {
+        return BrowserHttpServerWorkerPool.with(
+            port,
+            workerFactory,
+            workerCount
+        );
+    }
+
+    /**
+     * Tests if the client has abandoned the given request by posting an abort message with its id. Long running
+     * handlers may poll this and complete early, any response for an aborted request is discarded.
+     */
+    public static boolean isAborted(final HttpRequest request) {
+        Objects.requireNonNull(request, "request");
+
+        return request instanceof BrowserHttpServerHttpRequest &&
+            ((BrowserHttpServerHttpRequest) request).isAborted();
+    }
+
+    /**
+     * Returns an {@link AbortSignal} that is aborted when the client abandons the given request, which may be passed
+     * to fetch or other APIs that accept a signal.
+     */
+    public static AbortSignal abortSignal(final HttpRequest request) {
+        Objects.requireNonNull(request, "request");
+
+        if (false == request instanceof BrowserHttpServerHttpRequest) {
+            throw new IllegalArgumentException("Request not from a browser server " + request);
+        }
+        return ((BrowserHttpServerHttpRequest) request).abortSignal();
+    }
+
     /**
      * Stop creation
      */
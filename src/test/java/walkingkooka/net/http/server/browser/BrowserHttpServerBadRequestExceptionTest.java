@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public final class BrowserHttpServerBadRequestExceptionTest extends BrowserHttpServerTestCase<BrowserHttpServerBadRequestException> {
+
+    @Test
+    public void testWith() {
+        final IllegalArgumentException cause = new IllegalArgumentException("Invalid url 123");
+        final BrowserHttpServerBadRequestException thrown = BrowserHttpServerBadRequestException.with(cause);
+
+        this.checkEquals("Invalid url 123", thrown.getMessage(), "message");
+        assertSame(cause, thrown.getCause(), "cause");
+    }
+
+    @Test
+    public void testStackTraceNotFilled() {
+        this.checkEquals(
+            0,
+            BrowserHttpServerBadRequestException.with(new IllegalArgumentException())
+                .getStackTrace()
+                .length
+        );
+    }
+
+    @Override
+    public Class<BrowserHttpServerBadRequestException> type() {
+        return BrowserHttpServerBadRequestException.class;
+    }
+}
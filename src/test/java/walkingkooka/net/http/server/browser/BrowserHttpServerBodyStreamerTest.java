@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import elemental2.dom.MessagePort;
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.list.Lists;
+
+import java.util.Arrays;
+import java.util.List;
+
+public final class BrowserHttpServerBodyStreamerTest extends BrowserHttpServerTestCase<BrowserHttpServerBodyStreamer> {
+
+    @Test
+    public void testTextEmpty() {
+        this.textAndCheck(
+            "",
+            3
+        );
+    }
+
+    @Test
+    public void testTextSingleChunk() {
+        this.textAndCheck(
+            "abc",
+            3,
+            "abc"
+        );
+    }
+
+    @Test
+    public void testTextSeveralChunks() {
+        this.textAndCheck(
+            "abcdefgh",
+            3,
+            "abc",
+            "def",
+            "gh"
+        );
+    }
+
+    @Test
+    public void testTextSurrogatePairNotSplit() {
+        this.textAndCheck(
+            "ab😀cd",
+            3,
+            "ab",
+            "😀c",
+            "d"
+        );
+    }
+
+    @Test
+    public void testTextOneChunkPerTurn() {
+        final TestMessagePort port = new TestMessagePort();
+        final List<Runnable> scheduled = Lists.array();
+
+        BrowserHttpServerBodyStreamer.text(
+            "abcdefgh",
+            3,
+            port,
+            scheduled::add
+        );
+
+        this.checkEquals(Arrays.asList("abc"), port.messages, "first turn");
+        this.checkEquals(1, scheduled.size(), "scheduled");
+        this.checkEquals(false, port.closed, "closed");
+
+        scheduled.remove(0).run();
+        this.checkEquals(Arrays.asList("abc", "def"), port.messages, "second turn");
+
+        scheduled.remove(0).run();
+        this.checkEquals(Arrays.asList("abc", "def", "gh", null), port.messages, "third turn");
+        this.checkEquals(0, scheduled.size(), "scheduled");
+        this.checkEquals(true, port.closed, "closed");
+    }
+
+    private void textAndCheck(final String text,
+                              final int chunkSize,
+                              final String... chunks) {
+        final TestMessagePort port = new TestMessagePort();
+        final List<Runnable> scheduled = Lists.array();
+
+        BrowserHttpServerBodyStreamer.text(
+            text,
+            chunkSize,
+            port,
+            scheduled::add
+        );
+
+        while (false == scheduled.isEmpty()) {
+            scheduled.remove(0)
+                .run();
+        }
+
+        final List<Object> expected = Lists.array();
+        expected.addAll(Arrays.asList(chunks));
+        expected.add(null);
+
+        this.checkEquals(expected, port.messages, "messages");
+        this.checkEquals(true, port.closed, "closed");
+    }
+
+    /**
+     * Override the native methods that are called so they work in a JVM.
+     */
+    private static class TestMessagePort extends MessagePort {
+        @Override
+        public void postMessage(final Object message) {
+            this.messages.add(message);
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+
+        final List<Object> messages = Lists.array();
+        boolean closed;
+    }
+
+    @Override
+    public Class<BrowserHttpServerBodyStreamer> type() {
+        return BrowserHttpServerBodyStreamer.class;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.ToStringTesting;
+import walkingkooka.net.http.HttpStatusCode;
+import walkingkooka.net.http.server.HttpHandler;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class BrowserHttpServerHttpHandlerAsyncHttpHandlerTest extends BrowserHttpServerTestCase<BrowserHttpServerHttpHandlerAsyncHttpHandler>
+    implements ToStringTesting<BrowserHttpServerHttpHandlerAsyncHttpHandler> {
+
+    private final static HttpHandler HANDLER = (request, response) -> response.setStatus(HttpStatusCode.OK.status());
+
+    @Test
+    public void testWithNullFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServerHttpHandlerAsyncHttpHandler.with(null));
+    }
+
+    @Test
+    public void testHandleRunsCompletion() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        final boolean[] completed = new boolean[1];
+
+        BrowserHttpServerHttpHandlerAsyncHttpHandler.with(HANDLER)
+            .handle(
+                BrowserHttpServerHttpRequest.parse("{\"url\": \"/path1\"}"),
+                response,
+                () -> {
+                    this.checkEquals(Optional.of(HttpStatusCode.OK.status()), response.status(), "status set before completion");
+                    completed[0] = true;
+                }
+            );
+
+        this.checkEquals(true, completed[0], "completed");
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            BrowserHttpServerHttpHandlerAsyncHttpHandler.with(HANDLER),
+            HANDLER.toString()
+        );
+    }
+
+    @Override
+    public Class<BrowserHttpServerHttpHandlerAsyncHttpHandler> type() {
+        return BrowserHttpServerHttpHandlerAsyncHttpHandler.class;
+    }
+}
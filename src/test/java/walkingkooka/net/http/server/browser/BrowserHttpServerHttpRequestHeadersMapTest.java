@@ -25,6 +25,9 @@ import walkingkooka.tree.json.JsonNode;
 import walkingkooka.tree.json.JsonPropertyName;
 
 import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public final class BrowserHttpServerHttpRequestHeadersMapTest extends BrowserHttpServerTestCase<BrowserHttpServerHttpRequestHeadersMap> implements MapTesting<BrowserHttpServerHttpRequestHeadersMap, HttpHeaderName<?>, List<?>> {
 
@@ -56,6 +59,195 @@ public final class BrowserHttpServerHttpRequestHeadersMapTest extends BrowserHtt
         );
     }
 
+    @Test
+    public void testGetMissing() {
+        this.getAndCheck(
+            this.createMap(),
+            HttpHeaderName.ACCEPT,
+            Lists.empty()
+        );
+    }
+
+    @Test
+    public void testGetDuplicateNamesDifferentCase() {
+        this.getAndCheck(
+            BrowserHttpServerHttpRequestHeadersMap.with(
+                new String[]{"Content-Length", "content-length"},
+                new String[]{"1", "2"}
+            ),
+            HttpHeaderName.CONTENT_LENGTH,
+            Lists.of(1L, 2L)
+        );
+    }
+
+    @Test
+    public void testGetArrayValue() {
+        final HttpHeaderName<?> header = HttpHeaderName.with("X-Custom");
+
+        this.getAndCheck(
+            BrowserHttpServerHttpRequestHeadersMap.with(
+                JsonNode.object()
+                    .set(
+                        JsonPropertyName.with("X-Custom"),
+                        JsonNode.array()
+                            .appendChild(JsonNode.string("value-1"))
+                            .appendChild(JsonNode.string("value-2"))
+                    ).set(
+                        JsonPropertyName.with("Content-Length"),
+                        1
+                    )
+            ),
+            header,
+            Lists.of(
+                header.parseValue("value-1"),
+                header.parseValue("value-2")
+            )
+        );
+    }
+
+    @Test
+    public void testSizeGroupsRepeatedNames() {
+        this.checkEquals(
+            2,
+            BrowserHttpServerHttpRequestHeadersMap.with(
+                new String[]{"X-Custom", "Content-Length", "x-custom"},
+                new String[]{"1", "2", "3"}
+            ).size()
+        );
+    }
+
+    @Test
+    public void testGetLongValue() {
+        final BrowserHttpServerHttpRequestHeadersMap map = BrowserHttpServerHttpRequestHeadersMap.with(
+            new String[]{"Content-Length"},
+            new Object[]{9007199254740991L}
+        );
+        this.getAndCheck(
+            map,
+            HttpHeaderName.CONTENT_LENGTH,
+            Lists.of(9007199254740991L)
+        );
+    }
+
+    @Test
+    public void testGetLongValueTwice() {
+        for (int i = 0; i < 2; i++) {
+            this.getAndCheck(
+                BrowserHttpServerHttpRequestHeadersMap.with(
+                    new String[]{"Content-Length"},
+                    new Object[]{123L}
+                ),
+                HttpHeaderName.CONTENT_LENGTH,
+                Lists.of(123L)
+            );
+        }
+    }
+
+    @Test
+    public void testGetLongValueDifferentCase() {
+        this.getAndCheck(
+            BrowserHttpServerHttpRequestHeadersMap.with(
+                new String[]{"content-length"},
+                new Object[]{123L}
+            ),
+            HttpHeaderName.CONTENT_LENGTH,
+            Lists.of(123L)
+        );
+    }
+
+    @Test
+    public void testGetLongValueCustomHeaderText() {
+        final HttpHeaderName<?> header = HttpHeaderName.with("X-Custom");
+
+        for (int i = 0; i < 2; i++) {
+            this.getAndCheck(
+                BrowserHttpServerHttpRequestHeadersMap.with(
+                    new String[]{"X-Custom"},
+                    new Object[]{123L}
+                ),
+                header,
+                Lists.of(header.parseValue("123"))
+            );
+        }
+    }
+
+    @Test
+    public void testGetLongText() {
+        this.getAndCheck(
+            BrowserHttpServerHttpRequestHeadersMap.with(
+                new String[]{"Content-Length"},
+                new Object[]{"9007199254740993"}
+            ),
+            HttpHeaderName.CONTENT_LENGTH,
+            Lists.of(9007199254740993L)
+        );
+    }
+
+    @Test
+    public void testGetParsedOnce() {
+        final BrowserHttpServerHttpRequestHeadersMap map = this.createMap();
+        assertSame(
+            map.get(HttpHeaderName.CONTENT_TYPE),
+            map.get(HttpHeaderName.CONTENT_TYPE)
+        );
+    }
+
+    @Test
+    public void testGetAndEntrySetShareParsedValue() {
+        final BrowserHttpServerHttpRequestHeadersMap map = this.createMap();
+        final List<?> value = map.get(HttpHeaderName.CONTENT_LENGTH);
+
+        assertSame(
+            value,
+            map.entrySet()
+                .iterator()
+                .next()
+                .getValue()
+        );
+    }
+
+    @Test
+    public void testContainsKeyDifferentCase() {
+        this.checkEquals(
+            true,
+            BrowserHttpServerHttpRequestHeadersMap.with(
+                new String[]{"content-TYPE"},
+                new String[]{"text/plain"}
+            ).containsKey(HttpHeaderName.CONTENT_TYPE)
+        );
+    }
+
+    @Test
+    public void testFirstText() {
+        this.checkEquals(
+            Optional.of("u=5, i"),
+            BrowserHttpServerHttpRequestHeadersMap.with(
+                new String[]{"priority", "Priority"},
+                new String[]{"u=5, i", "u=1"}
+            ).firstText("Priority")
+        );
+    }
+
+    @Test
+    public void testFirstTextLong() {
+        this.checkEquals(
+            Optional.of("123"),
+            BrowserHttpServerHttpRequestHeadersMap.with(
+                new String[]{"Content-Length"},
+                new Object[]{123L}
+            ).firstText("content-length")
+        );
+    }
+
+    @Test
+    public void testFirstTextAbsent() {
+        this.checkEquals(
+            Optional.empty(),
+            this.createMap()
+                .firstText("Priority")
+        );
+    }
+
     @Override
     public BrowserHttpServerHttpRequestHeadersMap createMap() {
         return BrowserHttpServerHttpRequestHeadersMap.with(
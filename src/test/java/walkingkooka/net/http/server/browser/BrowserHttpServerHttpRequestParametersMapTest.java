@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.MapTesting;
+import walkingkooka.net.UrlQueryString;
+import walkingkooka.net.http.server.HttpRequestParameterName;
+
+import java.util.List;
+
+public final class BrowserHttpServerHttpRequestParametersMapTest extends BrowserHttpServerTestCase<BrowserHttpServerHttpRequestParametersMap> implements MapTesting<BrowserHttpServerHttpRequestParametersMap, HttpRequestParameterName, List<String>> {
+
+    @Test
+    public void testGet() {
+        this.getAndCheck(
+            this.createMap(),
+            HttpRequestParameterName.with("b"),
+            Lists.of("2")
+        );
+    }
+
+    @Test
+    public void testGetMerged() {
+        this.getAndCheck(
+            BrowserHttpServerHttpRequestParametersMap.with(
+                UrlQueryString.parse("a=1&b=2"),
+                UrlQueryString.parse("a=3")
+            ),
+            HttpRequestParameterName.with("a"),
+            Lists.of("1", "3")
+        );
+    }
+
+    @Test
+    public void testSize() {
+        this.checkEquals(
+            2,
+            this.createMap()
+                .size()
+        );
+    }
+
+    @Override
+    public BrowserHttpServerHttpRequestParametersMap createMap() {
+        return BrowserHttpServerHttpRequestParametersMap.with(
+            UrlQueryString.parse("a=1&b=2")
+        );
+    }
+
+    @Override
+    public Class<BrowserHttpServerHttpRequestParametersMap> type() {
+        return BrowserHttpServerHttpRequestParametersMap.class;
+    }
+}
@@ -18,184 +18,189 @@
 package walkingkooka.net.http.server.browser;
 
 import org.junit.jupiter.api.Test;
-import walkingkooka.ToStringTesting;
-import walkingkooka.collect.list.Lists;
-import walkingkooka.net.Url;
-import walkingkooka.net.header.HttpHeaderName;
-import walkingkooka.net.header.MediaType;
 import walkingkooka.net.http.HttpMethod;
 import walkingkooka.net.http.HttpProtocolVersion;
-import walkingkooka.tree.json.JsonNode;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
-public final class BrowserHttpServerHttpRequestTest extends BrowserHttpServerTestCase<BrowserHttpServerHttpRequest>
-    implements ToStringTesting<BrowserHttpServerHttpRequest> {
+public final class BrowserHttpServerHttpRequestTest extends BrowserHttpServerTestCase<BrowserHttpServerHttpRequest> {
+
+    @Test
+    public void testParseNullFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServerHttpRequest.parse(null));
+    }
+
+    @Test
+    public void testParseWithinJvm() {
+        final BrowserHttpServerHttpRequest request = BrowserHttpServerHttpRequest.parse("{ \"method\": \"POST\", \"url\": \"/path1\"}");
+        this.checkEquals(BrowserHttpServerJsonHttpRequest.class, request.getClass(), () -> request.toString());
+        this.checkEquals(HttpMethod.POST, request.method(), () -> request.toString());
+    }
+
+    @Test
+    public void testIsBatch() {
+        this.checkEquals(true, BrowserHttpServerHttpRequest.isBatch("[]"));
+    }
 
     @Test
-    public void testGetMethod() {
-        methodAndCheck(HttpMethod.GET);
+    public void testIsBatchLeadingWhitespace() {
+        this.checkEquals(true, BrowserHttpServerHttpRequest.isBatch(" \n\t[]"));
     }
 
     @Test
-    public void testPostMethod() {
-        methodAndCheck(HttpMethod.POST);
+    public void testIsBatchObject() {
+        this.checkEquals(false, BrowserHttpServerHttpRequest.isBatch("{}"));
     }
 
     @Test
-    public void testCustomMethod() {
-        methodAndCheck(HttpMethod.with("CustomMethod"));
+    public void testIsBatchEmpty() {
+        this.checkEquals(false, BrowserHttpServerHttpRequest.isBatch(" "));
     }
 
-    private void methodAndCheck(final HttpMethod method) {
-        this.methodAndCheck("{ \"method\": \"" + method + "\" }", method);
+    @Test
+    public void testParseBatchNullFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServerHttpRequest.parseBatch(null));
     }
 
     @Test
-    public void testMethodMissingDefaultsGET() {
-        this.methodAndCheck("{}", HttpMethod.GET);
+    public void testParseBatchObjectFails() {
+        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServerHttpRequest.parseBatch("{}"));
     }
 
-    private void methodAndCheck(final String request,
-                                final HttpMethod method) {
-        final BrowserHttpServerHttpRequest httpRequest = this.parse(request);
-        this.checkEquals(method, httpRequest.method(), () -> request);
+    @Test
+    public void testParseBatchWithinJvm() {
+        final List<BrowserHttpServerHttpRequest> requests = BrowserHttpServerHttpRequest.parseBatch("[{ \"method\": \"POST\", \"url\": \"/path1\"}, { \"url\": \"/path2\"}]");
+        this.checkEquals(2, requests.size(), () -> requests.toString());
+        this.checkEquals(HttpMethod.POST, requests.get(0).method(), () -> requests.toString());
+        this.checkEquals(HttpMethod.GET, requests.get(1).method(), () -> requests.toString());
     }
 
     @Test
-    public void testUrl() {
-        urlAndCheck("/path/to/file");
+    public void testParseBatchEmpty() {
+        this.checkEquals(0, BrowserHttpServerHttpRequest.parseBatch("[]").size());
     }
 
     @Test
-    public void testUrlWithQueryParameters() {
-        urlAndCheck("/path/with/query?query1=value1");
+    public void testMethodMissing() {
+        assertSame(HttpMethod.GET, BrowserHttpServerHttpRequest.method(null));
     }
 
-    private void urlAndCheck(final String url) {
-        final BrowserHttpServerHttpRequest request = this.parse("{ \"url\": \"" + url + "\" }");
-        this.checkEquals(Url.parseRelative(url), request.url(), () -> request.toString());
+    @Test
+    public void testMethodCommonInterned() {
+        assertSame(HttpMethod.POST, BrowserHttpServerHttpRequest.method("POST"));
     }
 
     @Test
-    public void testVersion10() {
-        versionAndCheck(HttpProtocolVersion.VERSION_1_0);
+    public void testMethodUncommon() {
+        this.checkEquals(HttpMethod.with("CUSTOM"), BrowserHttpServerHttpRequest.method("CUSTOM"));
     }
 
     @Test
-    public void testVersion11() {
-        versionAndCheck(HttpProtocolVersion.VERSION_1_1);
+    public void testProtocolVersionMissing() {
+        assertSame(HttpProtocolVersion.VERSION_1_0, BrowserHttpServerHttpRequest.protocolVersion(null));
     }
 
-    private void versionAndCheck(final HttpProtocolVersion version) {
-        this.versionAndCheck("{ \"version\": \"" + version + "\" }", version);
+    @Test
+    public void testProtocolVersionCommonInterned() {
+        assertSame(HttpProtocolVersion.VERSION_1_1, BrowserHttpServerHttpRequest.protocolVersion("HTTP/1.1"));
     }
 
     @Test
-    public void testVersionMissingDefaultsHttp10() {
-        this.versionAndCheck("{}", HttpProtocolVersion.VERSION_1_0);
+    public void testUrlParsedOnce() {
+        final BrowserHttpServerHttpRequest request = BrowserHttpServerHttpRequest.parse("{ \"url\": \"/path1?query2\"}");
+        assertSame(request.url(), request.url());
     }
 
-    private void versionAndCheck(final String request,
-                                 final HttpProtocolVersion version) {
-        final BrowserHttpServerHttpRequest httpRequest = this.parse(request);
-        this.checkEquals(version,
-            httpRequest.protocolVersion(),
-            () -> request);
+    @Test
+    public void testMethodParsedOnce() {
+        final BrowserHttpServerHttpRequest request = BrowserHttpServerHttpRequest.parse("{ \"method\": \"PATCH\", \"url\": \"/path1\"}");
+        assertSame(request.method(), request.method());
     }
 
     @Test
-    public void testHeadersMissing() {
-        final BrowserHttpServerHttpRequest request = this.parse("{}");
-        this.checkEquals(Lists.empty(),
-            request.headers().get(HttpHeaderName.CONTENT_TYPE),
-            () -> request.toString());
+    public void testUtf8LengthAscii() {
+        this.utf8LengthAndCheck("abc123");
     }
 
     @Test
-    public void testHeaderAbsent() {
-        final BrowserHttpServerHttpRequest request = this.parse("{ \"headers\": {\"Content-Length\": 123}}");
-        this.checkEquals(Lists.empty(),
-            request.headers().get(HttpHeaderName.CONTENT_TYPE),
-            () -> request.toString());
+    public void testUtf8LengthTwoBytes() {
+        this.utf8LengthAndCheck("\u00e9\u07ff");
     }
 
     @Test
-    public void testHeaderNumericValue() {
-        final BrowserHttpServerHttpRequest request = this.parse("{ \"headers\": {\"Content-Length\": 123}}");
-        this.checkEquals(Lists.of(123L),
-            request.headers().get(HttpHeaderName.CONTENT_LENGTH),
-            () -> request.toString());
+    public void testUtf8LengthThreeBytes() {
+        this.utf8LengthAndCheck("\u0800\u20ac\uffff");
     }
 
     @Test
-    public void testHeaderStringValue() {
-        final BrowserHttpServerHttpRequest request = this.parse("{ \"headers\": {\"Content-Type\": \"text/plain\"}}");
-        this.checkEquals(Lists.of(MediaType.TEXT_PLAIN),
-            request.headers().get(HttpHeaderName.CONTENT_TYPE),
-            () -> request.toString());
+    public void testUtf8LengthSurrogatePair() {
+        this.utf8LengthAndCheck("a\ud83d\ude00b");
     }
 
     @Test
-    public void testHeaders() {
-        final BrowserHttpServerHttpRequest request = this.parse("{ \"method\": \"POST\", \"headers\": {\"Content-Type\": \"text/plain\", \"Content-Length\": 123}}");
-        this.checkEquals(HttpMethod.POST,
-            request.method(),
-            () -> request.toString());
-        this.checkEquals(Lists.of(MediaType.TEXT_PLAIN),
-            request.headers().get(HttpHeaderName.CONTENT_TYPE),
-            () -> request.toString());
-        this.checkEquals(Lists.of(123L),
-            request.headers().get(HttpHeaderName.CONTENT_LENGTH),
-            () -> request.toString());
+    public void testUtf8LengthUnpairedSurrogate() {
+        this.utf8LengthAndCheck("a\ud83db\ude00");
+    }
+
+    private void utf8LengthAndCheck(final String text) {
+        this.checkEquals(
+            (long) text.getBytes(StandardCharsets.UTF_8).length,
+            BrowserHttpServerHttpRequest.utf8Length(text),
+            () -> text
+        );
     }
 
     @Test
-    public void testBodyText() {
-        final BrowserHttpServerHttpRequest request = this.parse("{ \"body\": \"abc123\"}");
-        this.checkEquals("abc123", request.bodyText());
+    public void testIsBackgroundUrgencyNull() {
+        this.isBackgroundUrgencyAndCheck(null, false);
     }
 
     @Test
-    public void testBodyFails() {
-        assertThrows(UnsupportedOperationException.class, () -> this.parse("{ \"body\": \"abc123\"}").body());
+    public void testIsBackgroundUrgencyMissing() {
+        this.isBackgroundUrgencyAndCheck("i", false);
     }
 
     @Test
-    public void testBodyLength() {
-        this.checkEquals(6L, this.parse("{\"headers\": {}, \"body\": \"abc123\"}").bodyLength());
+    public void testIsBackgroundUrgencyDefault() {
+        this.isBackgroundUrgencyAndCheck("u=3", false);
     }
 
     @Test
-    public void testBodyLengthContentTypeUtf8() {
-        this.checkEquals(6L, this.parse("{\"headers\": {\"Content-Type\": \"text/plain;charset=UTF8\"}, \"body\": \"abc123\"}").bodyLength());
+    public void testIsBackgroundUrgencyHigh() {
+        this.isBackgroundUrgencyAndCheck("u=0, i", false);
     }
 
     @Test
-    public void testBodyLengthContentTypeUtf16() {
-        this.checkEquals(14L, this.parse("{\"headers\": {\"Content-Type\": \"text/plain;charset=UTF16\"}, \"body\": \"abc123\"}").bodyLength());
+    public void testIsBackgroundUrgencyLow() {
+        this.isBackgroundUrgencyAndCheck("u=4", true);
     }
 
     @Test
-    public void testParametersFails() {
-        assertThrows(UnsupportedOperationException.class, () -> this.parse("{}").parameters());
+    public void testIsBackgroundUrgencyLowest() {
+        this.isBackgroundUrgencyAndCheck("i, u=7", true);
     }
 
-    private BrowserHttpServerHttpRequest parse(final String json) {
-        return BrowserHttpServerHttpRequest.with(JsonNode.parse(json).objectOrFail());
+    @Test
+    public void testIsBackgroundUrgencyInvalidIgnored() {
+        this.isBackgroundUrgencyAndCheck("u=9", false);
     }
 
     @Test
-    public void testToString() {
-        this.toStringAndCheck(this.parse("{ \"method\": \"POST\", \"headers\": {\"Content-Type\": \"text/plain\", \"Content-Length\": 123}, \"body\": \"abc123\"}"),
-            "{\n" +
-                "  \"method\": \"POST\",\n" +
-                "  \"headers\": {\n" +
-                "    \"Content-Type\": \"text/plain\",\n" +
-                "    \"Content-Length\": 123\n" +
-                "  },\n" +
-                "  \"body\": \"abc123\"\n" +
-                "}");
+    public void testIsBackgroundUrgencyLastWins() {
+        this.isBackgroundUrgencyAndCheck("u=5, u=1", false);
+    }
+
+    private void isBackgroundUrgencyAndCheck(final String priority,
+                                             final boolean expected) {
+        this.checkEquals(
+            expected,
+            BrowserHttpServerHttpRequest.isBackgroundUrgency(priority),
+            () -> priority
+        );
     }
 
     @Override
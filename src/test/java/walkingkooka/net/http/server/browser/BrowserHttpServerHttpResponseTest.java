@@ -18,6 +18,8 @@
 package walkingkooka.net.http.server.browser;
 
 import org.junit.jupiter.api.Test;
+import walkingkooka.Binary;
+import walkingkooka.Cast;
 import walkingkooka.ToStringTesting;
 import walkingkooka.net.header.HttpHeaderName;
 import walkingkooka.net.header.MediaType;
@@ -29,6 +31,10 @@ import walkingkooka.tree.json.JsonNode;
 
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 public final class BrowserHttpServerHttpResponseTest extends BrowserHttpServerTestCase<BrowserHttpServerHttpResponse>
     implements ToStringTesting<BrowserHttpServerHttpResponse> {
 
@@ -41,6 +47,32 @@ public final class BrowserHttpServerHttpResponseTest extends BrowserHttpServerTe
             "{}");
     }
 
+    // id...............................................................................................................
+
+    @Test
+    public void testSetId() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+
+        final JsonNode id = JsonNode.number(123);
+        response.setId(id);
+        this.checkEquals(Optional.of(id), response.id(), "id");
+
+        this.check(response,
+            "{ \"id\": 123}");
+    }
+
+    @Test
+    public void testSetIdString() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+
+        final JsonNode id = JsonNode.string("abc-123");
+        response.setId(id);
+        this.checkEquals(Optional.of(id), response.id(), "id");
+
+        this.check(response,
+            "{ \"id\": \"abc-123\"}");
+    }
+
     // version..........................................................................................................
 
     @Test
@@ -168,10 +200,350 @@ public final class BrowserHttpServerHttpResponseTest extends BrowserHttpServerTe
             "}");
     }
 
+    @Test
+    public void testSetEntityMultipleValues() {
+        final HttpHeaderName<String> header = Cast.to(HttpHeaderName.with("X-Custom"));
+
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY
+            .addHeader(header, "value-1")
+            .addHeader(header, "value-2")
+            .addHeader(HttpHeaderName.CONTENT_LENGTH, 1L));
+
+        this.check(response, "{\n" +
+            "  \"headers\": {\n" +
+            "    \"X-Custom\": [\"value-1\", \"value-2\"],\n" +
+            "    \"Content-Length\": 1\n" +
+            "  }\n" +
+            "}");
+    }
+
+    @Test
+    public void testSetEntityLongBeyondSafeInteger() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY.addHeader(HttpHeaderName.CONTENT_LENGTH, 9007199254740993L));
+
+        this.check(response, "{\n" +
+            "  \"headers\": {\n" +
+            "    \"Content-Length\": \"9007199254740993\"\n" +
+            "  }\n" +
+            "}");
+    }
+
+    // failure..........................................................................................................
+
+    @Test
+    public void testSetFailureNullFails() {
+        assertThrows(
+            NullPointerException.class,
+            () -> BrowserHttpServerHttpResponse.empty()
+                .setFailure(null)
+        );
+    }
+
+    @Test
+    public void testFailureWithoutFailure() {
+        this.checkEquals(
+            Optional.empty(),
+            BrowserHttpServerHttpResponse.empty()
+                .failure()
+        );
+    }
+
+    @Test
+    public void testSetFailure() {
+        final IllegalStateException failure = new IllegalStateException("Failed!");
+
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setFailure(failure);
+
+        this.checkEquals(
+            Optional.of(failure),
+            response.failure()
+        );
+    }
+
+    // queueDepth.......................................................................................................
+
+    @Test
+    public void testSetQueueDepthNegativeFails() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BrowserHttpServerHttpResponse.empty()
+                .setQueueDepth(-1)
+        );
+    }
+
+    @Test
+    public void testSetQueueDepth() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+        response.setQueueDepth(3);
+
+        this.check(response,
+            "{\n" +
+                "  \"status-code\": 200,\n" +
+                "  \"status-message\": \"OK\",\n" +
+                "  \"queue-depth\": 3\n" +
+                "}");
+    }
+
+    // addHeader........................................................................................................
+
+    @Test
+    public void testAddHeader() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY
+            .addHeader(HttpHeaderName.CONTENT_LENGTH, 7L)
+            .setBodyText("Body123"));
+        response.addHeader("Retry-After", 1L);
+
+        this.check(response,
+            "{\n" +
+                "  \"headers\": {\n" +
+                "    \"Content-Length\": 7,\n" +
+                "    \"Retry-After\": 1\n" +
+                "  },\n" +
+                "  \"body\": \"Body123\"\n" +
+                "}");
+    }
+
+    @Test
+    public void testAddHeaderWithoutEntity() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.addHeader("Retry-After", 1L);
+
+        this.check(response,
+            "{\n" +
+                "  \"headers\": {\n" +
+                "    \"Retry-After\": 1\n" +
+                "  }\n" +
+                "}");
+    }
+
+    // writeJson........................................................................................................
+
+    @Test
+    public void testWriteJson() {
+        final HttpHeaderName<String> header = Cast.to(HttpHeaderName.with("X-Custom"));
+
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setId(JsonNode.string("id-1"));
+        response.setVersion(HttpProtocolVersion.VERSION_1_1);
+        response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+        response.setQueueDepth(2);
+        response.setEntity(HttpEntity.EMPTY
+            .addHeader(HttpHeaderName.CONTENT_LENGTH, 7L)
+            .addHeader(header, "value-1")
+            .addHeader(header, "value-2")
+            .setBodyText("Body\"123"));
+
+        final StringBuilder b = new StringBuilder();
+        response.writeJson(b);
+
+        this.checkEquals(
+            "{\"id\":\"id-1\",\"version\":\"HTTP/1.1\",\"status-code\":200,\"status-message\":\"OK\",\"queue-depth\":2,\"headers\":{\"Content-Length\":7,\"X-Custom\":[\"value-1\",\"value-2\"]},\"body\":\"Body\\\"123\"}",
+            b.toString()
+        );
+        this.checkEquals(
+            response.toJsonObject(),
+            JsonNode.parse(b.toString()),
+            "same as toJsonObject"
+        );
+    }
+
+    @Test
+    public void testWriteJsonEmpty() {
+        final StringBuilder b = new StringBuilder();
+        BrowserHttpServerHttpResponse.empty()
+            .writeJson(b);
+
+        this.checkEquals("{}", b.toString());
+    }
+
+    @Test
+    public void testSetEntityTwiceFails() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY.setBodyText("Body123"));
+
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> response.setEntity(HttpEntity.EMPTY.setBodyText("Body456"))
+        );
+    }
+
+    @Test
+    public void testSetEntityBinaryTwiceFails() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY
+            .addHeader(HttpHeaderName.CONTENT_TYPE, MediaType.parse("image/png"))
+            .setBody(Binary.with(new byte[]{1, 2, 3})));
+
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> response.setEntity(HttpEntity.EMPTY.setBodyText("Body456"))
+        );
+    }
+
+    @Test
+    public void testSetEntityThenStatusAndId() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY
+            .addHeader(HttpHeaderName.CONTENT_LENGTH, 7L)
+            .setBodyText("Body123"));
+        response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+        response.setId(JsonNode.number(1));
+
+        this.check(response,
+            "{\n" +
+                "  \"id\": 1,\n" +
+                "  \"status-code\": 200,\n" +
+                "  \"status-message\": \"OK\",\n" +
+                "  \"headers\": {\n" +
+                "    \"Content-Length\": 7\n" +
+                "  },\n" +
+                "  \"body\": \"Body123\"\n" +
+                "}");
+    }
+
+    @Test
+    public void testEntity() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        final HttpEntity entity = HttpEntity.EMPTY
+            .addHeader(HttpHeaderName.CONTENT_LENGTH, 7L)
+            .setBodyText("Body123");
+        response.setEntity(entity);
+
+        assertSame(entity, response.entity());
+    }
+
+    @Test
+    public void testEntityWithoutEntity() {
+        assertSame(HttpEntity.EMPTY, BrowserHttpServerHttpResponse.empty().entity());
+    }
+
+    // bodyText.......................................................................................................
+
+    @Test
+    public void testBodyTextWithoutEntity() {
+        this.checkEquals("", BrowserHttpServerHttpResponse.empty().bodyText());
+    }
+
+    @Test
+    public void testBodyText() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY.setBodyText("Body123"));
+
+        this.checkEquals("Body123", response.bodyText());
+    }
+
+    @Test
+    public void testBodyTextBinaryContentType() {
+        final HttpEntity entity = HttpEntity.EMPTY
+            .addHeader(HttpHeaderName.CONTENT_TYPE, MediaType.parse("image/png"))
+            .setBody(Binary.with("Body123".getBytes()));
+
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(entity);
+
+        this.checkEquals(entity.bodyText(), response.bodyText());
+    }
+
+    // withoutBody......................................................................................................
+
+    @Test
+    public void testWithoutBody() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+        response.setEntity(HttpEntity.EMPTY
+            .addHeader(HttpHeaderName.CONTENT_LENGTH, 7L)
+            .setBodyText("Body123"));
+
+        this.check(response.withoutBody(),
+            "{\n" +
+                "  \"status-code\": 200,\n" +
+                "  \"status-message\": \"OK\",\n" +
+                "  \"headers\": {\n" +
+                "    \"Content-Length\": 7\n" +
+                "  }\n" +
+                "}");
+        this.checkEquals("Body123", response.bodyText(), "original body");
+    }
+
+    // binaryBody.....................................................................................................
+
+    @Test
+    public void testBinaryBodyWithoutEntity() {
+        this.binaryBodyAndCheck(
+            BrowserHttpServerHttpResponse.empty(),
+            Optional.empty()
+        );
+    }
+
+    @Test
+    public void testBinaryBodyTextWithoutContentType() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY.setBodyText("Body123"));
+
+        this.binaryBodyAndCheck(
+            response,
+            Optional.empty()
+        );
+    }
+
+    @Test
+    public void testBinaryBodyTextContentType() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY
+            .addHeader(HttpHeaderName.CONTENT_TYPE, MediaType.TEXT_PLAIN)
+            .setBodyText("Body123"));
+
+        this.binaryBodyAndCheck(
+            response,
+            Optional.empty()
+        );
+    }
+
+    @Test
+    public void testBinaryBodyJsonContentType() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY
+            .addHeader(HttpHeaderName.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+            .setBodyText("{}"));
+
+        this.binaryBodyAndCheck(
+            response,
+            Optional.empty()
+        );
+    }
+
+    @Test
+    public void testBinaryBodyBinaryContentType() {
+        final byte[] bytes = new byte[]{1, 2, 3, (byte) 255};
+
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setEntity(HttpEntity.EMPTY
+            .addHeader(HttpHeaderName.CONTENT_TYPE, MediaType.parse("image/png"))
+            .setBody(Binary.with(bytes)));
+
+        final Optional<byte[]> body = response.binaryBody();
+        this.checkEquals(true, body.isPresent(), "binaryBody");
+        assertArrayEquals(bytes, body.get());
+    }
+
+    private void binaryBodyAndCheck(final BrowserHttpServerHttpResponse response,
+                                    final Optional<byte[]> expected) {
+        this.checkEquals(
+            expected,
+            response.binaryBody(),
+            response::toString
+        );
+    }
+
     private void check(final BrowserHttpServerHttpResponse response,
                        final String json) {
         this.checkEquals(JsonNode.parse(json),
-            response.object);
+            response.toJsonObject());
     }
 
     // toString.........................................................................................................
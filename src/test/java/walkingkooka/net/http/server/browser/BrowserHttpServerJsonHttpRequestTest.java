@@ -0,0 +1,383 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.ToStringTesting;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.net.Url;
+import walkingkooka.net.header.HttpHeaderName;
+import walkingkooka.net.header.MediaType;
+import walkingkooka.net.http.HttpMethod;
+import walkingkooka.net.http.HttpProtocolVersion;
+import walkingkooka.net.http.server.HttpRequestParameterName;
+import walkingkooka.tree.json.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public final class BrowserHttpServerJsonHttpRequestTest extends BrowserHttpServerTestCase<BrowserHttpServerJsonHttpRequest>
+    implements ToStringTesting<BrowserHttpServerJsonHttpRequest> {
+
+    @Test
+    public void testIdMissing() {
+        this.idAndCheck("{}", Optional.empty());
+    }
+
+    @Test
+    public void testIdNumber() {
+        this.idAndCheck("{ \"id\": 123 }", Optional.of(JsonNode.number(123)));
+    }
+
+    @Test
+    public void testIdString() {
+        this.idAndCheck("{ \"id\": \"abc-123\" }", Optional.of(JsonNode.string("abc-123")));
+    }
+
+    private void idAndCheck(final String request,
+                            final Optional<JsonNode> id) {
+        final BrowserHttpServerJsonHttpRequest httpRequest = this.parse(request);
+        this.checkEquals(id, httpRequest.id(), () -> request);
+    }
+
+    @Test
+    public void testGetMethod() {
+        methodAndCheck(HttpMethod.GET);
+    }
+
+    @Test
+    public void testPostMethod() {
+        methodAndCheck(HttpMethod.POST);
+    }
+
+    @Test
+    public void testCustomMethod() {
+        methodAndCheck(HttpMethod.with("CustomMethod"));
+    }
+
+    private void methodAndCheck(final HttpMethod method) {
+        this.methodAndCheck("{ \"method\": \"" + method + "\" }", method);
+    }
+
+    @Test
+    public void testMethodMissingDefaultsGET() {
+        this.methodAndCheck("{}", HttpMethod.GET);
+    }
+
+    private void methodAndCheck(final String request,
+                                final HttpMethod method) {
+        final BrowserHttpServerJsonHttpRequest httpRequest = this.parse(request);
+        this.checkEquals(method, httpRequest.method(), () -> request);
+    }
+
+    @Test
+    public void testUrl() {
+        urlAndCheck("/path/to/file");
+    }
+
+    @Test
+    public void testUrlWithQueryParameters() {
+        urlAndCheck("/path/with/query?query1=value1");
+    }
+
+    private void urlAndCheck(final String url) {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{ \"url\": \"" + url + "\" }");
+        this.checkEquals(Url.parseRelative(url), request.url(), () -> request.toString());
+    }
+
+    @Test
+    public void testVersion10() {
+        versionAndCheck(HttpProtocolVersion.VERSION_1_0);
+    }
+
+    @Test
+    public void testVersion11() {
+        versionAndCheck(HttpProtocolVersion.VERSION_1_1);
+    }
+
+    private void versionAndCheck(final HttpProtocolVersion version) {
+        this.versionAndCheck("{ \"version\": \"" + version + "\" }", version);
+    }
+
+    @Test
+    public void testVersionMissingDefaultsHttp10() {
+        this.versionAndCheck("{}", HttpProtocolVersion.VERSION_1_0);
+    }
+
+    private void versionAndCheck(final String request,
+                                 final HttpProtocolVersion version) {
+        final BrowserHttpServerJsonHttpRequest httpRequest = this.parse(request);
+        this.checkEquals(version,
+            httpRequest.protocolVersion(),
+            () -> request);
+    }
+
+    @Test
+    public void testHeadersMissing() {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{}");
+        this.checkEquals(Lists.empty(),
+            request.headers().get(HttpHeaderName.CONTENT_TYPE),
+            () -> request.toString());
+    }
+
+    @Test
+    public void testHeaderAbsent() {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{ \"headers\": {\"Content-Length\": 123}}");
+        this.checkEquals(Lists.empty(),
+            request.headers().get(HttpHeaderName.CONTENT_TYPE),
+            () -> request.toString());
+    }
+
+    @Test
+    public void testHeaderNumericValue() {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{ \"headers\": {\"Content-Length\": 123}}");
+        this.checkEquals(Lists.of(123L),
+            request.headers().get(HttpHeaderName.CONTENT_LENGTH),
+            () -> request.toString());
+    }
+
+    @Test
+    public void testHeaderStringValue() {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{ \"headers\": {\"Content-Type\": \"text/plain\"}}");
+        this.checkEquals(Lists.of(MediaType.TEXT_PLAIN),
+            request.headers().get(HttpHeaderName.CONTENT_TYPE),
+            () -> request.toString());
+    }
+
+    @Test
+    public void testHeaders() {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{ \"method\": \"POST\", \"headers\": {\"Content-Type\": \"text/plain\", \"Content-Length\": 123}}");
+        this.checkEquals(HttpMethod.POST,
+            request.method(),
+            () -> request.toString());
+        this.checkEquals(Lists.of(MediaType.TEXT_PLAIN),
+            request.headers().get(HttpHeaderName.CONTENT_TYPE),
+            () -> request.toString());
+        this.checkEquals(Lists.of(123L),
+            request.headers().get(HttpHeaderName.CONTENT_LENGTH),
+            () -> request.toString());
+    }
+
+    @Test
+    public void testAbortIdMissing() {
+        this.checkEquals(Optional.empty(), this.parse("{\"id\": 1}").abortId());
+    }
+
+    @Test
+    public void testAbortId() {
+        this.checkEquals(Optional.of(JsonNode.number(1)), this.parse("{\"abort\": 1}").abortId());
+    }
+
+    @Test
+    public void testIsAbortedDefault() {
+        this.checkEquals(false, this.parse("{}").isAborted());
+    }
+
+    @Test
+    public void testAbort() {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{}");
+        request.abort();
+        request.abort();
+        this.checkEquals(true, request.isAborted());
+    }
+
+    @Test
+    public void testIsBackgroundMissing() {
+        this.isBackgroundAndCheck("{}", false);
+    }
+
+    @Test
+    public void testIsBackgroundPriorityBackground() {
+        this.isBackgroundAndCheck("{\"priority\": \"background\"}", true);
+    }
+
+    @Test
+    public void testIsBackgroundPriorityInteractive() {
+        this.isBackgroundAndCheck("{\"priority\": \"interactive\", \"headers\": {\"Priority\": \"u=6\"}}", false);
+    }
+
+    @Test
+    public void testIsBackgroundPriorityHeader() {
+        this.isBackgroundAndCheck("{\"headers\": {\"priority\": \"u=6\"}}", true);
+    }
+
+    private void isBackgroundAndCheck(final String request,
+                                      final boolean expected) {
+        this.checkEquals(
+            expected,
+            this.parse(request).isBackground(),
+            () -> request
+        );
+    }
+
+    @Test
+    public void testHeaderCountMissing() {
+        this.checkEquals(0, this.parse("{}").headerCount());
+    }
+
+    @Test
+    public void testHeaderCount() {
+        this.checkEquals(
+            3,
+            this.parse("{\"headers\": {\"X-Custom\": [\"a\", \"b\"], \"Content-Length\": 1}}").headerCount()
+        );
+    }
+
+    @Test
+    public void testBodyText() {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{ \"body\": \"abc123\"}");
+        this.checkEquals("abc123", request.bodyText());
+    }
+
+    @Test
+    public void testBody() {
+        this.checkEquals(
+            "abc123",
+            new String(this.parse("{ \"body\": \"abc123\"}").body(), StandardCharsets.UTF_8)
+        );
+    }
+
+    @Test
+    public void testBodyMissing() {
+        this.checkEquals(0, this.parse("{}").body().length);
+    }
+
+    @Test
+    public void testBodyContentTypeUtf16() {
+        this.checkEquals(
+            "abc123",
+            new String(this.parse("{\"headers\": {\"Content-Type\": \"text/plain;charset=UTF16\"}, \"body\": \"abc123\"}").body(), StandardCharsets.UTF_16)
+        );
+    }
+
+    @Test
+    public void testBodyLength() {
+        this.checkEquals(6L, this.parse("{\"headers\": {}, \"body\": \"abc123\"}").bodyLength());
+    }
+
+    @Test
+    public void testBodyLengthContentTypeUtf8() {
+        this.checkEquals(6L, this.parse("{\"headers\": {\"Content-Type\": \"text/plain;charset=UTF8\"}, \"body\": \"abc123\"}").bodyLength());
+    }
+
+    @Test
+    public void testBodyLengthContentTypeUtf16() {
+        this.checkEquals(14L, this.parse("{\"headers\": {\"Content-Type\": \"text/plain;charset=UTF16\"}, \"body\": \"abc123\"}").bodyLength());
+    }
+
+    @Test
+    public void testBodyLengthMultiByte() {
+        this.checkEquals(
+            (long) "a\u00e9\u20ac".getBytes(StandardCharsets.UTF_8).length,
+            this.parse("{\"body\": \"a\u00e9\u20ac\"}").bodyLength()
+        );
+    }
+
+    @Test
+    public void testBodyLengthContentLengthIgnored() {
+        this.checkEquals(6L, this.parse("{\"headers\": {\"Content-Length\": 10}, \"body\": \"abc123\"}").bodyLength());
+    }
+
+    @Test
+    public void testBodyLengthContentLengthIgnoredMultiByte() {
+        this.checkEquals(6L, this.parse("{\"headers\": {\"Content-Length\": 5}, \"body\": \"a\u00e9\u20ac\"}").bodyLength());
+    }
+
+    @Test
+    public void testBodyLengthContentLengthInconsistentIgnored() {
+        this.checkEquals(6L, this.parse("{\"headers\": {\"Content-Length\": 999}, \"body\": \"abc123\"}").bodyLength());
+    }
+
+    @Test
+    public void testParametersNone() {
+        this.checkEquals(
+            Maps.empty(),
+            this.parse("{\"url\": \"/path1\"}").parameters()
+        );
+    }
+
+    @Test
+    public void testParametersQueryString() {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{\"url\": \"/path1?a=1&b=2&a=3\"}");
+        this.checkEquals(
+            Lists.of("1", "3"),
+            request.parameterValues(HttpRequestParameterName.with("a"))
+        );
+        this.checkEquals(
+            Lists.of("2"),
+            request.parameterValues(HttpRequestParameterName.with("b"))
+        );
+        this.checkEquals(
+            Lists.empty(),
+            request.parameterValues(HttpRequestParameterName.with("c"))
+        );
+    }
+
+    @Test
+    public void testParametersFormBody() {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{\"method\": \"POST\", \"url\": \"/path1?a=1\", \"headers\": {\"Content-Type\": \"application/x-www-form-urlencoded\"}, \"body\": \"a=2&b=3\"}");
+        this.checkEquals(
+            Lists.of("1", "2"),
+            request.parameterValues(HttpRequestParameterName.with("a"))
+        );
+        this.checkEquals(
+            Lists.of("3"),
+            request.parameterValues(HttpRequestParameterName.with("b"))
+        );
+    }
+
+    @Test
+    public void testParametersBodyNotForm() {
+        this.checkEquals(
+            Lists.empty(),
+            this.parse("{\"url\": \"/path1\", \"headers\": {\"Content-Type\": \"text/plain\"}, \"body\": \"a=2\"}")
+                .parameterValues(HttpRequestParameterName.with("a"))
+        );
+    }
+
+    @Test
+    public void testParametersCached() {
+        final BrowserHttpServerJsonHttpRequest request = this.parse("{\"url\": \"/path1?a=1\"}");
+        assertSame(request.parameters(), request.parameters());
+    }
+
+    private BrowserHttpServerJsonHttpRequest parse(final String json) {
+        return BrowserHttpServerJsonHttpRequest.with(JsonNode.parse(json).objectOrFail());
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(this.parse("{ \"method\": \"POST\", \"headers\": {\"Content-Type\": \"text/plain\", \"Content-Length\": 123}, \"body\": \"abc123\"}"),
+            "{\n" +
+                "  \"method\": \"POST\",\n" +
+                "  \"headers\": {\n" +
+                "    \"Content-Type\": \"text/plain\",\n" +
+                "    \"Content-Length\": 123\n" +
+                "  },\n" +
+                "  \"body\": \"abc123\"\n" +
+                "}");
+    }
+
+    @Override
+    public Class<BrowserHttpServerJsonHttpRequest> type() {
+        return BrowserHttpServerJsonHttpRequest.class;
+    }
+}
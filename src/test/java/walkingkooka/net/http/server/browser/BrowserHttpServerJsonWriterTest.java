@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.tree.json.JsonNode;
+
+public final class BrowserHttpServerJsonWriterTest extends BrowserHttpServerTestCase<BrowserHttpServerJsonWriter> {
+
+    @Test
+    public void testNull() {
+        this.writeAndCheck("null");
+    }
+
+    @Test
+    public void testBooleanTrue() {
+        this.writeAndCheck("true");
+    }
+
+    @Test
+    public void testBooleanFalse() {
+        this.writeAndCheck("false");
+    }
+
+    @Test
+    public void testNumberWhole() {
+        this.writeAndCheck("123");
+    }
+
+    @Test
+    public void testNumberNegative() {
+        this.writeAndCheck("-123");
+    }
+
+    @Test
+    public void testNumberFraction() {
+        this.writeAndCheck("1.5");
+    }
+
+    @Test
+    public void testString() {
+        this.writeAndCheck("\"abc123\"");
+    }
+
+    @Test
+    public void testStringEscaped() {
+        this.writeAndCheck("\"quote\\\" backslash\\\\ nl\\n cr\\r tab\\t\"");
+    }
+
+    @Test
+    public void testStringControlCharacter() {
+        this.writeAndCheck(
+            JsonNode.string("a\u0001b"),
+            "\"a\\u0001b\""
+        );
+    }
+
+    @Test
+    public void testArray() {
+        this.writeAndCheck("[1,\"two\",true,null]");
+    }
+
+    @Test
+    public void testArrayEmpty() {
+        this.writeAndCheck("[]");
+    }
+
+    @Test
+    public void testObject() {
+        this.writeAndCheck("{\"a\":1,\"b\":\"two\",\"c\":{\"d\":[3]}}");
+    }
+
+    @Test
+    public void testObjectEmpty() {
+        this.writeAndCheck("{}");
+    }
+
+    @Test
+    public void testObjectWhitespaceRemoved() {
+        this.writeAndCheck(
+            JsonNode.parse("{\n  \"a\": 1,\n  \"b\": [\n    2,\n    3\n  ]\n}"),
+            "{\"a\":1,\"b\":[2,3]}"
+        );
+    }
+
+    @Test
+    public void testNumberLong() {
+        this.numberAndCheck(123L, "123");
+    }
+
+    @Test
+    public void testNumberLongMaxSafeInteger() {
+        this.numberAndCheck(9007199254740991L, "9007199254740991");
+    }
+
+    @Test
+    public void testNumberLongBeyondSafeInteger() {
+        this.numberAndCheck(9007199254740993L, "\"9007199254740993\"");
+    }
+
+    @Test
+    public void testNumberInteger() {
+        this.numberAndCheck(-45, "-45");
+    }
+
+    @Test
+    public void testNumberDouble() {
+        this.numberAndCheck(1.5, "1.5");
+    }
+
+    private void numberAndCheck(final Number number,
+                                final String expected) {
+        final StringBuilder b = new StringBuilder();
+        BrowserHttpServerJsonWriter.number(number, b);
+        this.checkEquals(expected, b.toString(), () -> number.toString());
+    }
+
+    private void writeAndCheck(final String json) {
+        this.writeAndCheck(
+            JsonNode.parse(json),
+            json
+        );
+    }
+
+    private void writeAndCheck(final JsonNode node,
+                               final String expected) {
+        this.checkEquals(
+            expected,
+            BrowserHttpServerJsonWriter.write(node),
+            () -> node.toString()
+        );
+    }
+
+    @Override
+    public Class<BrowserHttpServerJsonWriter> type() {
+        return BrowserHttpServerJsonWriter.class;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.HashCodeEqualsDefinedTesting2;
+import walkingkooka.ToStringTesting;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class BrowserHttpServerOptionsTest implements ClassTesting2<BrowserHttpServerOptions>,
+    HashCodeEqualsDefinedTesting2<BrowserHttpServerOptions>,
+    ToStringTesting<BrowserHttpServerOptions> {
+
+    // streamingChunkSize...............................................................................................
+
+    @Test
+    public void testDefaultStreamingChunkSize() {
+        this.checkEquals(0, BrowserHttpServerOptions.DEFAULT.streamingChunkSize());
+    }
+
+    @Test
+    public void testSetStreamingChunkSizeNegativeFails() {
+        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServerOptions.DEFAULT.setStreamingChunkSize(-1));
+    }
+
+    @Test
+    public void testSetStreamingChunkSizeSame() {
+        assertSame(BrowserHttpServerOptions.DEFAULT, BrowserHttpServerOptions.DEFAULT.setStreamingChunkSize(0));
+    }
+
+    @Test
+    public void testSetStreamingChunkSizeDifferent() {
+        final BrowserHttpServerOptions options = BrowserHttpServerOptions.DEFAULT.setStreamingChunkSize(1024);
+        this.checkEquals(1024, options.streamingChunkSize());
+        this.checkEquals(0, BrowserHttpServerOptions.DEFAULT.streamingChunkSize(), "original");
+    }
+
+    @Test
+    public void testEqualsDifferentStreamingChunkSize() {
+        this.checkNotEquals(BrowserHttpServerOptions.DEFAULT.setStreamingChunkSize(1));
+    }
+
+    // coalesceResponses................................................................................................
+
+    @Test
+    public void testDefaultCoalesceResponses() {
+        this.checkEquals(false, BrowserHttpServerOptions.DEFAULT.coalesceResponses());
+    }
+
+    @Test
+    public void testSetCoalesceResponsesSame() {
+        assertSame(BrowserHttpServerOptions.DEFAULT, BrowserHttpServerOptions.DEFAULT.setCoalesceResponses(false));
+    }
+
+    @Test
+    public void testSetCoalesceResponsesDifferent() {
+        final BrowserHttpServerOptions options = BrowserHttpServerOptions.DEFAULT.setStreamingChunkSize(1024)
+            .setCoalesceResponses(true);
+        this.checkEquals(true, options.coalesceResponses());
+        this.checkEquals(1024, options.streamingChunkSize(), "streamingChunkSize");
+        this.checkEquals(false, BrowserHttpServerOptions.DEFAULT.coalesceResponses(), "original");
+    }
+
+    @Test
+    public void testEqualsDifferentCoalesceResponses() {
+        this.checkNotEquals(BrowserHttpServerOptions.DEFAULT.setCoalesceResponses(true));
+    }
+
+    // maxMessageSize...................................................................................................
+
+    @Test
+    public void testDefaultMaxMessageSize() {
+        this.checkEquals(0, BrowserHttpServerOptions.DEFAULT.maxMessageSize());
+    }
+
+    @Test
+    public void testSetMaxMessageSizeNegativeFails() {
+        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServerOptions.DEFAULT.setMaxMessageSize(-1));
+    }
+
+    @Test
+    public void testSetMaxMessageSizeSame() {
+        assertSame(BrowserHttpServerOptions.DEFAULT, BrowserHttpServerOptions.DEFAULT.setMaxMessageSize(0));
+    }
+
+    @Test
+    public void testSetMaxMessageSizeDifferent() {
+        final BrowserHttpServerOptions options = BrowserHttpServerOptions.DEFAULT.setStreamingChunkSize(1024)
+            .setMaxMessageSize(100);
+        this.checkEquals(100, options.maxMessageSize());
+        this.checkEquals(1024, options.streamingChunkSize(), "streamingChunkSize");
+        this.checkEquals(0, BrowserHttpServerOptions.DEFAULT.maxMessageSize(), "original");
+    }
+
+    @Test
+    public void testEqualsDifferentMaxMessageSize() {
+        this.checkNotEquals(BrowserHttpServerOptions.DEFAULT.setMaxMessageSize(1));
+    }
+
+    // maxHeaderCount...................................................................................................
+
+    @Test
+    public void testDefaultMaxHeaderCount() {
+        this.checkEquals(0, BrowserHttpServerOptions.DEFAULT.maxHeaderCount());
+    }
+
+    @Test
+    public void testSetMaxHeaderCountNegativeFails() {
+        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServerOptions.DEFAULT.setMaxHeaderCount(-1));
+    }
+
+    @Test
+    public void testSetMaxHeaderCountSame() {
+        assertSame(BrowserHttpServerOptions.DEFAULT, BrowserHttpServerOptions.DEFAULT.setMaxHeaderCount(0));
+    }
+
+    @Test
+    public void testSetMaxHeaderCountDifferent() {
+        final BrowserHttpServerOptions options = BrowserHttpServerOptions.DEFAULT.setStreamingChunkSize(1024)
+            .setMaxHeaderCount(100);
+        this.checkEquals(100, options.maxHeaderCount());
+        this.checkEquals(1024, options.streamingChunkSize(), "streamingChunkSize");
+        this.checkEquals(0, BrowserHttpServerOptions.DEFAULT.maxHeaderCount(), "original");
+    }
+
+    @Test
+    public void testEqualsDifferentMaxHeaderCount() {
+        this.checkNotEquals(BrowserHttpServerOptions.DEFAULT.setMaxHeaderCount(1));
+    }
+
+    // maxQueueDepth....................................................................................................
+
+    @Test
+    public void testDefaultMaxQueueDepth() {
+        this.checkEquals(0, BrowserHttpServerOptions.DEFAULT.maxQueueDepth());
+    }
+
+    @Test
+    public void testSetMaxQueueDepthNegativeFails() {
+        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServerOptions.DEFAULT.setMaxQueueDepth(-1));
+    }
+
+    @Test
+    public void testSetMaxQueueDepthSame() {
+        assertSame(BrowserHttpServerOptions.DEFAULT, BrowserHttpServerOptions.DEFAULT.setMaxQueueDepth(0));
+    }
+
+    @Test
+    public void testSetMaxQueueDepthDifferent() {
+        final BrowserHttpServerOptions options = BrowserHttpServerOptions.DEFAULT.setStreamingChunkSize(1024)
+            .setMaxQueueDepth(50);
+        this.checkEquals(50, options.maxQueueDepth());
+        this.checkEquals(1024, options.streamingChunkSize(), "streamingChunkSize");
+        this.checkEquals(0, BrowserHttpServerOptions.DEFAULT.maxQueueDepth(), "original");
+    }
+
+    @Test
+    public void testEqualsDifferentMaxQueueDepth() {
+        this.checkNotEquals(BrowserHttpServerOptions.DEFAULT.setMaxQueueDepth(1));
+    }
+
+    // timeSliceMillis..................................................................................................
+
+    @Test
+    public void testDefaultTimeSliceMillis() {
+        this.checkEquals(0, BrowserHttpServerOptions.DEFAULT.timeSliceMillis());
+    }
+
+    @Test
+    public void testSetTimeSliceMillisNegativeFails() {
+        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServerOptions.DEFAULT.setTimeSliceMillis(-1));
+    }
+
+    @Test
+    public void testSetTimeSliceMillisSame() {
+        assertSame(BrowserHttpServerOptions.DEFAULT, BrowserHttpServerOptions.DEFAULT.setTimeSliceMillis(0));
+    }
+
+    @Test
+    public void testSetTimeSliceMillisDifferent() {
+        final BrowserHttpServerOptions options = BrowserHttpServerOptions.DEFAULT.setStreamingChunkSize(1024)
+            .setTimeSliceMillis(8);
+        this.checkEquals(8, options.timeSliceMillis());
+        this.checkEquals(1024, options.streamingChunkSize(), "streamingChunkSize");
+        this.checkEquals(0, BrowserHttpServerOptions.DEFAULT.timeSliceMillis(), "original");
+    }
+
+    @Test
+    public void testEqualsDifferentTimeSliceMillis() {
+        this.checkNotEquals(BrowserHttpServerOptions.DEFAULT.setTimeSliceMillis(1));
+    }
+
+    // Object...........................................................................................................
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            BrowserHttpServerOptions.DEFAULT.setStreamingChunkSize(1024)
+                .setCoalesceResponses(true)
+                .setMaxMessageSize(1000000)
+                .setMaxHeaderCount(100)
+                .setMaxQueueDepth(50)
+                .setTimeSliceMillis(8),
+            "streamingChunkSize=1024, coalesceResponses=true, maxMessageSize=1000000, maxHeaderCount=100, maxQueueDepth=50, timeSliceMillis=8"
+        );
+    }
+
+    @Override
+    public BrowserHttpServerOptions createObject() {
+        return BrowserHttpServerOptions.DEFAULT;
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<BrowserHttpServerOptions> type() {
+        return BrowserHttpServerOptions.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
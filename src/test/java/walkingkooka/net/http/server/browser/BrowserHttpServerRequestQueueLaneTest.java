@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.ToStringTesting;
+import walkingkooka.collect.list.Lists;
+
+import java.util.List;
+
+public final class BrowserHttpServerRequestQueueLaneTest extends BrowserHttpServerTestCase<BrowserHttpServerRequestQueueLane>
+    implements ToStringTesting<BrowserHttpServerRequestQueueLane> {
+
+    private final static Object CLIENT1 = "client-1";
+
+    private final static Object CLIENT2 = "client-2";
+
+    @Test
+    public void testPollEmpty() {
+        final BrowserHttpServerRequestQueueLane lane = BrowserHttpServerRequestQueueLane.empty();
+        this.checkEquals(null, lane.poll(), "poll");
+        this.checkEquals(true, lane.isEmpty(), "isEmpty");
+    }
+
+    @Test
+    public void testPollSingleClientInOrder() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueueLane lane = BrowserHttpServerRequestQueueLane.empty();
+
+        lane.add(CLIENT1, () -> ran.add("a1"));
+        lane.add(CLIENT1, () -> ran.add("a2"));
+        lane.add(CLIENT1, () -> ran.add("a3"));
+        this.checkEquals(3, lane.size(), "size");
+
+        this.pollAll(lane);
+        this.checkEquals(Lists.of("a1", "a2", "a3"), ran);
+    }
+
+    @Test
+    public void testPollClientsTakeTurns() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueueLane lane = BrowserHttpServerRequestQueueLane.empty();
+
+        for (int i = 1; i <= 4; i++) {
+            final String name = "a" + i;
+            lane.add(CLIENT1, () -> ran.add(name));
+        }
+        lane.add(CLIENT2, () -> ran.add("b1"));
+        lane.add(null, () -> ran.add("n1"));
+        lane.add(CLIENT2, () -> ran.add("b2"));
+
+        this.pollAll(lane);
+        this.checkEquals(Lists.of("a1", "b1", "n1", "a2", "b2", "a3", "a4"), ran);
+    }
+
+    @Test
+    public void testPollClientAddedAfterTurnsStarted() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueueLane lane = BrowserHttpServerRequestQueueLane.empty();
+
+        lane.add(CLIENT1, () -> ran.add("a1"));
+        lane.add(CLIENT1, () -> ran.add("a2"));
+        lane.add(CLIENT1, () -> ran.add("a3"));
+        lane.poll().run();
+
+        lane.add(CLIENT2, () -> ran.add("b1"));
+
+        this.pollAll(lane);
+        this.checkEquals(Lists.of("a1", "a2", "b1", "a3"), ran);
+    }
+
+    @Test
+    public void testRemove() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueueLane lane = BrowserHttpServerRequestQueueLane.empty();
+
+        final Runnable removed = () -> ran.add("b1");
+        lane.add(CLIENT1, () -> ran.add("a1"));
+        lane.add(CLIENT2, removed);
+        lane.add(CLIENT1, () -> ran.add("a2"));
+
+        this.checkEquals(true, lane.remove(removed), "remove");
+        this.checkEquals(false, lane.remove(removed), "remove again");
+        this.checkEquals(2, lane.size(), "size");
+
+        this.pollAll(lane);
+        this.checkEquals(Lists.of("a1", "a2"), ran);
+    }
+
+    @Test
+    public void testToString() {
+        final BrowserHttpServerRequestQueueLane lane = BrowserHttpServerRequestQueueLane.empty();
+        lane.add(CLIENT1, () -> {});
+        lane.add(CLIENT2, () -> {});
+        this.toStringAndCheck(lane, "size=2");
+    }
+
+    private void pollAll(final BrowserHttpServerRequestQueueLane lane) {
+        for (; ; ) {
+            final Runnable task = lane.poll();
+            if (null == task) {
+                break;
+            }
+            task.run();
+        }
+        this.checkEquals(true, lane.isEmpty(), "isEmpty");
+    }
+
+    @Override
+    public Class<BrowserHttpServerRequestQueueLane> type() {
+        return BrowserHttpServerRequestQueueLane.class;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.ToStringTesting;
+import walkingkooka.collect.list.Lists;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class BrowserHttpServerRequestQueueTest extends BrowserHttpServerTestCase<BrowserHttpServerRequestQueue>
+    implements ToStringTesting<BrowserHttpServerRequestQueue> {
+
+    @Test
+    public void testWithNegativeMaxDepthFails() {
+        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServerRequestQueue.with(-1, 0, CLOCK, SCHEDULER));
+    }
+
+    @Test
+    public void testWithNegativeTimeSliceMillisFails() {
+        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServerRequestQueue.with(0, -1, CLOCK, SCHEDULER));
+    }
+
+    @Test
+    public void testWithNullClockFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServerRequestQueue.with(0, 0, null, SCHEDULER));
+    }
+
+    @Test
+    public void testWithNullSchedulerFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServerRequestQueue.with(0, 0, CLOCK, null));
+    }
+
+    @Test
+    public void testOfferAndDrain() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueue queue = this.queue(0);
+
+        this.checkEquals(true, queue.offer(CLIENT, () -> ran.add("1"), false), "offer");
+        this.checkEquals(Lists.empty(), ran, "ran before drain");
+        this.checkEquals(1, queue.depth(), "depth before drain");
+
+        queue.drain();
+        this.checkEquals(Lists.of("1"), ran, "ran");
+        this.checkEquals(1, queue.depth(), "depth before complete");
+
+        queue.complete();
+        this.checkEquals(0, queue.depth(), "depth after complete");
+    }
+
+    @Test
+    public void testOfferFull() {
+        final BrowserHttpServerRequestQueue queue = this.queue(2);
+
+        this.checkEquals(true, queue.offer(CLIENT, () -> {}, false), "offer 1");
+        this.checkEquals(true, queue.offer(CLIENT, () -> {}, true), "offer 2");
+        this.checkEquals(false, queue.offer(CLIENT, () -> {}, false), "offer 3");
+        this.checkEquals(2, queue.depth(), "depth");
+
+        queue.drain();
+        queue.complete();
+        this.checkEquals(true, queue.offer(CLIENT, () -> {}, false), "offer after complete");
+    }
+
+    @Test
+    public void testOfferWithinTaskRunsAfter() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueue queue = this.queue(0);
+
+        queue.offer(
+            CLIENT,
+            () -> {
+                queue.offer(CLIENT, () -> ran.add("2"), false);
+                queue.drain();
+                ran.add("1");
+            },
+            false
+        );
+        queue.drain();
+
+        this.checkEquals(Lists.of("1", "2"), ran);
+    }
+
+    @Test
+    public void testDrainInteractiveBeforeBackground() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueue queue = this.queue(0);
+
+        queue.offer(CLIENT, () -> ran.add("b1"), true);
+        queue.offer(CLIENT, () -> ran.add("i1"), false);
+        queue.offer(CLIENT, () -> ran.add("b2"), true);
+        queue.offer(CLIENT, () -> ran.add("i2"), false);
+        queue.drain();
+
+        this.checkEquals(Lists.of("i1", "i2", "b1", "b2"), ran);
+    }
+
+    @Test
+    public void testDrainBackgroundNotStarved() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueue queue = this.queue(0);
+
+        queue.offer(CLIENT, () -> ran.add("b1"), true);
+        queue.offer(CLIENT, () -> ran.add("b2"), true);
+        for (int i = 1; i <= 6; i++) {
+            final String name = "i" + i;
+            queue.offer(CLIENT, () -> ran.add(name), false);
+        }
+        queue.drain();
+
+        this.checkEquals(4, BrowserHttpServerRequestQueue.INTERACTIVE_BEFORE_BACKGROUND, "INTERACTIVE_BEFORE_BACKGROUND");
+        this.checkEquals(Lists.of("i1", "i2", "i3", "i4", "b1", "i5", "i6", "b2"), ran);
+    }
+
+    @Test
+    public void testScheduleDrain() {
+        final List<String> ran = Lists.array();
+        final List<Runnable> scheduled = Lists.array();
+
+        final BrowserHttpServerRequestQueue queue = BrowserHttpServerRequestQueue.with(
+            0,
+            0,
+            CLOCK,
+            scheduled::add
+        );
+
+        queue.offer(CLIENT, () -> ran.add("b1"), true);
+        queue.scheduleDrain();
+        queue.offer(CLIENT, () -> ran.add("i1"), false);
+        queue.scheduleDrain();
+
+        this.checkEquals(Lists.empty(), ran, "ran before scheduled drain");
+        this.checkEquals(1, scheduled.size(), "only a single drain scheduled");
+
+        scheduled.remove(0)
+            .run();
+        this.checkEquals(Lists.of("i1", "b1"), ran);
+    }
+
+    @Test
+    public void testDrainTimeSliceYields() {
+        final List<String> ran = Lists.array();
+        final long[] now = new long[1];
+        final List<Runnable> scheduled = Lists.array();
+
+        final BrowserHttpServerRequestQueue queue = BrowserHttpServerRequestQueue.with(
+            0,
+            8,
+            () -> now[0],
+            scheduled::add
+        );
+
+        for (int i = 1; i <= 5; i++) {
+            final String name = "i" + i;
+            queue.offer(
+                CLIENT,
+                () -> {
+                    ran.add(name);
+                    now[0] += 3;
+                },
+                false
+            );
+        }
+
+        queue.drain();
+        this.checkEquals(Lists.of("i1", "i2", "i3"), ran, "first slice");
+        this.checkEquals(1, scheduled.size(), "scheduled");
+
+        queue.drain();
+        this.checkEquals(Lists.of("i1", "i2", "i3", "i4", "i5"), ran, "drain from new message uses a new slice");
+
+        scheduled.remove(0)
+            .run();
+        this.checkEquals(Lists.of("i1", "i2", "i3", "i4", "i5"), ran, "scheduled drain with nothing waiting");
+        this.checkEquals(Lists.empty(), scheduled, "nothing more scheduled");
+    }
+
+    @Test
+    public void testDrainTimeSliceResumes() {
+        final List<String> ran = Lists.array();
+        final long[] now = new long[1];
+        final List<Runnable> scheduled = Lists.array();
+
+        final BrowserHttpServerRequestQueue queue = BrowserHttpServerRequestQueue.with(
+            0,
+            8,
+            () -> now[0],
+            scheduled::add
+        );
+
+        for (int i = 1; i <= 4; i++) {
+            final String name = "i" + i;
+            queue.offer(
+                CLIENT,
+                () -> {
+                    ran.add(name);
+                    now[0] += 10;
+                },
+                false
+            );
+        }
+
+        queue.drain();
+        this.checkEquals(Lists.of("i1"), ran, "first slice");
+
+        scheduled.remove(0)
+            .run();
+        this.checkEquals(Lists.of("i1", "i2"), ran, "second slice");
+
+        scheduled.remove(0)
+            .run();
+        scheduled.remove(0)
+            .run();
+        this.checkEquals(Lists.of("i1", "i2", "i3", "i4"), ran, "last slice");
+        this.checkEquals(Lists.empty(), scheduled, "nothing scheduled after last task");
+        this.checkEquals(4, queue.depth(), "depth");
+    }
+
+    @Test
+    public void testDrainWithoutTimeSliceNeverYields() {
+        final List<String> ran = Lists.array();
+        final long[] now = new long[1];
+
+        final BrowserHttpServerRequestQueue queue = BrowserHttpServerRequestQueue.with(
+            0,
+            0,
+            () -> now[0],
+            (task) -> {
+                throw new UnsupportedOperationException();
+            }
+        );
+
+        for (int i = 1; i <= 3; i++) {
+            final String name = "i" + i;
+            queue.offer(
+                CLIENT,
+                () -> {
+                    ran.add(name);
+                    now[0] += 100;
+                },
+                false
+            );
+        }
+        queue.drain();
+
+        this.checkEquals(Lists.of("i1", "i2", "i3"), ran);
+    }
+
+    @Test
+    public void testDrainClientsTakeTurns() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueue queue = this.queue(0);
+
+        final Object client1 = "client-1";
+        final Object client2 = "client-2";
+
+        for (int i = 1; i <= 3; i++) {
+            final String name = "a" + i;
+            queue.offer(client1, () -> ran.add(name), false);
+        }
+        queue.offer(client2, () -> ran.add("b1"), false);
+        queue.offer(client2, () -> ran.add("b2"), false);
+        queue.drain();
+
+        this.checkEquals(Lists.of("a1", "b1", "a2", "b2", "a3"), ran);
+    }
+
+    @Test
+    public void testDrainClientsTakeTurnsWithinLane() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueue queue = this.queue(0);
+
+        final Object client1 = "client-1";
+        final Object client2 = "client-2";
+
+        queue.offer(client1, () -> ran.add("a1"), false);
+        queue.offer(client1, () -> ran.add("a2"), false);
+        queue.offer(client1, () -> ran.add("ab1"), true);
+        queue.offer(client2, () -> ran.add("bb1"), true);
+        queue.offer(client2, () -> ran.add("b1"), false);
+        queue.drain();
+
+        this.checkEquals(Lists.of("a1", "b1", "a2", "ab1", "bb1"), ran);
+    }
+
+    @Test
+    public void testRemoveWaiting() {
+        final List<String> ran = Lists.array();
+        final BrowserHttpServerRequestQueue queue = this.queue(0);
+
+        final Runnable removed = () -> ran.add("b1");
+        queue.offer(CLIENT, () -> ran.add("i1"), false);
+        queue.offer(CLIENT, removed, true);
+
+        this.checkEquals(true, queue.remove(removed), "remove");
+        this.checkEquals(1, queue.depth(), "depth");
+
+        queue.drain();
+        this.checkEquals(Lists.of("i1"), ran);
+    }
+
+    @Test
+    public void testRemoveAlreadyRun() {
+        final BrowserHttpServerRequestQueue queue = this.queue(0);
+
+        final Runnable task = () -> {};
+        queue.offer(CLIENT, task, false);
+        queue.drain();
+
+        this.checkEquals(false, queue.remove(task), "remove");
+        this.checkEquals(1, queue.depth(), "depth");
+    }
+
+    @Test
+    public void testCompleteWhenEmpty() {
+        final BrowserHttpServerRequestQueue queue = this.queue(0);
+        queue.complete();
+        this.checkEquals(0, queue.depth());
+    }
+
+    @Test
+    public void testToString() {
+        final BrowserHttpServerRequestQueue queue = this.queue(10);
+        queue.offer(CLIENT, () -> {}, false);
+        this.toStringAndCheck(queue, "depth=1/10");
+    }
+
+    @Test
+    public void testToStringUnbounded() {
+        this.toStringAndCheck(this.queue(0), "depth=0");
+    }
+
+    private final static Object CLIENT = "client";
+
+    private final static LongSupplier CLOCK = () -> 0;
+
+    private final static Consumer<Runnable> SCHEDULER = (task) -> {
+        throw new UnsupportedOperationException();
+    };
+
+    private BrowserHttpServerRequestQueue queue(final int maxDepth) {
+        return BrowserHttpServerRequestQueue.with(
+            maxDepth,
+            0, // timeSliceMillis
+            CLOCK,
+            SCHEDULER
+        );
+    }
+
+    @Override
+    public Class<BrowserHttpServerRequestQueue> type() {
+        return BrowserHttpServerRequestQueue.class;
+    }
+}
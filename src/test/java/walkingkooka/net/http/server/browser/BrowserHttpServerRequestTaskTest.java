@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.ToStringTesting;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.tree.json.JsonNode;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class BrowserHttpServerRequestTaskTest extends BrowserHttpServerTestCase<BrowserHttpServerRequestTask>
+    implements ToStringTesting<BrowserHttpServerRequestTask> {
+
+    private final static Object CLIENT = new Object();
+
+    private final static Runnable HANDLE = () -> {
+        throw new UnsupportedOperationException();
+    };
+
+    private final static Runnable DROP = () -> {
+        throw new UnsupportedOperationException();
+    };
+
+    @Test
+    public void testWithNullRequestFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServerRequestTask.with(CLIENT, null, HANDLE, DROP));
+    }
+
+    @Test
+    public void testWithNullHandleFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServerRequestTask.with(CLIENT, this.request(), null, DROP));
+    }
+
+    @Test
+    public void testWithNullDropFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServerRequestTask.with(CLIENT, this.request(), HANDLE, null));
+    }
+
+    @Test
+    public void testRequest() {
+        final BrowserHttpServerHttpRequest request = this.request();
+        assertSame(
+            request,
+            BrowserHttpServerRequestTask.with(CLIENT, request, HANDLE, DROP)
+                .request()
+        );
+    }
+
+    @Test
+    public void testIsRequest() {
+        this.isRequestAndCheck(CLIENT, JsonNode.number(1), true);
+    }
+
+    @Test
+    public void testIsRequestDifferentClient() {
+        this.isRequestAndCheck(new Object(), JsonNode.number(1), false);
+    }
+
+    @Test
+    public void testIsRequestDifferentId() {
+        this.isRequestAndCheck(CLIENT, JsonNode.number(2), false);
+    }
+
+    @Test
+    public void testIsRequestDifferentIdType() {
+        this.isRequestAndCheck(CLIENT, JsonNode.string("1"), false);
+    }
+
+    private void isRequestAndCheck(final Object client,
+                                   final JsonNode id,
+                                   final boolean expected) {
+        this.checkEquals(
+            expected,
+            BrowserHttpServerRequestTask.with(CLIENT, this.request(), HANDLE, DROP)
+                .isRequest(client, id),
+            () -> id.toString()
+        );
+    }
+
+    @Test
+    public void testIsClient() {
+        this.isClientAndCheck(CLIENT, true);
+    }
+
+    @Test
+    public void testIsClientDifferentClient() {
+        this.isClientAndCheck(new Object(), false);
+    }
+
+    private void isClientAndCheck(final Object client,
+                                  final boolean expected) {
+        this.checkEquals(
+            expected,
+            BrowserHttpServerRequestTask.with(CLIENT, this.request(), HANDLE, DROP)
+                .isClient(client)
+        );
+    }
+
+    @Test
+    public void testRunAndDrop() {
+        final List<String> ran = Lists.array();
+
+        final BrowserHttpServerRequestTask task = BrowserHttpServerRequestTask.with(
+            CLIENT,
+            this.request(),
+            () -> ran.add("handle"),
+            () -> ran.add("drop")
+        );
+        task.run();
+        task.drop();
+
+        this.checkEquals(Lists.of("handle", "drop"), ran);
+    }
+
+    @Test
+    public void testToString() {
+        final BrowserHttpServerHttpRequest request = this.request();
+        this.toStringAndCheck(
+            BrowserHttpServerRequestTask.with(CLIENT, request, HANDLE, DROP),
+            request.toString()
+        );
+    }
+
+    private BrowserHttpServerHttpRequest request() {
+        return BrowserHttpServerHttpRequest.parse("{\"id\": 1, \"url\": \"/path1\"}");
+    }
+
+    @Override
+    public Class<BrowserHttpServerRequestTask> type() {
+        return BrowserHttpServerRequestTask.class;
+    }
+}
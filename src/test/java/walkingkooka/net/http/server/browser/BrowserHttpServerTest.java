@@ -17,9 +17,11 @@
 
 package walkingkooka.net.http.server.browser;
 
+import elemental2.core.Transferable;
 import elemental2.dom.DomGlobal;
 import elemental2.dom.Event;
 import elemental2.dom.EventListener;
+import elemental2.dom.EventTarget;
 import elemental2.dom.MessageEvent;
 import elemental2.dom.MessagePort;
 import elemental2.dom.Window;
@@ -28,19 +30,26 @@ import jsinterop.base.Js;
 import org.junit.jupiter.api.Test;
 import walkingkooka.ToStringTesting;
 import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
 import walkingkooka.net.header.HttpHeaderName;
 import walkingkooka.net.http.HttpEntity;
 import walkingkooka.net.http.HttpProtocolVersion;
 import walkingkooka.net.http.HttpStatusCode;
 import walkingkooka.net.http.server.HttpHandler;
+import walkingkooka.net.http.server.HttpRequest;
 import walkingkooka.net.http.server.HttpServer;
 import walkingkooka.predicate.Predicates;
 import walkingkooka.reflect.ClassTesting2;
 import walkingkooka.reflect.JavaVisibility;
+import walkingkooka.tree.json.JsonNode;
+import walkingkooka.tree.json.JsonObject;
+import walkingkooka.tree.json.JsonPropertyName;
 
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -50,45 +59,59 @@ public final class BrowserHttpServerTest implements ClassTesting2<BrowserHttpSer
         throw new UnsupportedOperationException();
     };
 
+    private final static BrowserHttpServerAsyncHttpHandler ASYNC_HANDLER = BrowserHttpServerHttpHandlerAsyncHttpHandler.with(HANDLER);
+
     private final static Predicate<MessageEvent<String>> MESSAGE_FILTER = Predicates.always();
     private final static String TARGET_ORIGIN = "*";
+    private final static BrowserHttpServerWireFormat FORMAT = BrowserHttpServerWireFormat.PRETTY_JSON;
+    private final static BrowserHttpServerOptions OPTIONS = BrowserHttpServerOptions.DEFAULT;
 
     @Test
     public void testWithNullProcessorFails() {
-        assertThrows(NullPointerException.class, () -> BrowserHttpServer.with(null, new TestMessagePort(), MESSAGE_FILTER, TARGET_ORIGIN));
+        assertThrows(NullPointerException.class, () -> BrowserHttpServer.with(null, new TestMessagePort(), MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS));
     }
 
     @Test
     public void testWithNullMessagePortFails() {
-        assertThrows(NullPointerException.class, () -> BrowserHttpServer.with(HANDLER, null, MESSAGE_FILTER, TARGET_ORIGIN));
+        assertThrows(NullPointerException.class, () -> BrowserHttpServer.with(HANDLER, null, MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS));
     }
 
     @Test
     public void testWithNullMessageFilterFails() {
-        assertThrows(NullPointerException.class, () -> BrowserHttpServer.with(HANDLER, new TestMessagePort(), null, TARGET_ORIGIN));
+        assertThrows(NullPointerException.class, () -> BrowserHttpServer.with(HANDLER, new TestMessagePort(), null, TARGET_ORIGIN, FORMAT, OPTIONS));
     }
 
     @Test
     public void testWithNullTargetOriginFails() {
-        assertThrows(NullPointerException.class, () -> BrowserHttpServer.with(HANDLER, new TestMessagePort(), MESSAGE_FILTER, null));
+        assertThrows(NullPointerException.class, () -> BrowserHttpServer.with(HANDLER, new TestMessagePort(), MESSAGE_FILTER, null, FORMAT, OPTIONS));
     }
 
     @Test
     public void testWithEmptyTargetOriginFails() {
-        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServer.with(HANDLER, new TestMessagePort(), MESSAGE_FILTER, ""));
+        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServer.with(HANDLER, new TestMessagePort(), MESSAGE_FILTER, "", FORMAT, OPTIONS));
+    }
+
+    @Test
+    public void testWithNullFormatFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServer.with(HANDLER, new TestMessagePort(), MESSAGE_FILTER, TARGET_ORIGIN, null, OPTIONS));
+    }
+
+    @Test
+    public void testWithNullOptionsFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServer.with(HANDLER, new TestMessagePort(), MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, null));
     }
 
     @Test
     public void testStart() {
         final TestMessagePort port = new TestMessagePort();
-        final BrowserHttpServer server = BrowserHttpServer.with(HANDLER, port, MESSAGE_FILTER, TARGET_ORIGIN);
+        final BrowserHttpServer server = BrowserHttpServer.with(HANDLER, port, MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS);
         server.start();
     }
 
     @Test
     public void testStartTwiceFails() {
         final TestMessagePort port = new TestMessagePort();
-        final BrowserHttpServer server = BrowserHttpServer.with(HANDLER, port, MESSAGE_FILTER, TARGET_ORIGIN);
+        final BrowserHttpServer server = BrowserHttpServer.with(HANDLER, port, MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS);
         server.start();
         assertThrows(IllegalStateException.class, () -> server.start());
     }
@@ -96,14 +119,14 @@ public final class BrowserHttpServerTest implements ClassTesting2<BrowserHttpSer
     @Test
     public void testStopWithStartFails() {
         final TestMessagePort port = new TestMessagePort();
-        final BrowserHttpServer server = BrowserHttpServer.with(HANDLER, port, MESSAGE_FILTER, TARGET_ORIGIN);
+        final BrowserHttpServer server = BrowserHttpServer.with(HANDLER, port, MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS);
         assertThrows(IllegalStateException.class, () -> server.stop());
     }
 
     @Test
     public void testStop() {
         final TestMessagePort port = new TestMessagePort();
-        final BrowserHttpServer server = BrowserHttpServer.with(HANDLER, port, MESSAGE_FILTER, TARGET_ORIGIN);
+        final BrowserHttpServer server = BrowserHttpServer.with(HANDLER, port, MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS);
         server.start();
         server.stop();
     }
@@ -111,7 +134,7 @@ public final class BrowserHttpServerTest implements ClassTesting2<BrowserHttpSer
     @Test
     public void testStopTwiceFails() {
         final TestMessagePort port = new TestMessagePort();
-        final BrowserHttpServer server = BrowserHttpServer.with(HANDLER, port, MESSAGE_FILTER, TARGET_ORIGIN);
+        final BrowserHttpServer server = BrowserHttpServer.with(HANDLER, port, MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS);
         server.start();
         server.stop();
         assertThrows(IllegalStateException.class, () -> server.stop());
@@ -125,7 +148,8 @@ public final class BrowserHttpServerTest implements ClassTesting2<BrowserHttpSer
             response.setEntity(
                 HttpEntity.EMPTY.setBodyText("Response-" + request.bodyText())
             );
-        }, port, MESSAGE_FILTER, TARGET_ORIGIN);
+        }, port, MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS);
+        server.scheduler = Runnable::run;
         server.start();
 
         final List<String> postedMessage = Lists.array();
@@ -150,6 +174,1245 @@ public final class BrowserHttpServerTest implements ClassTesting2<BrowserHttpSer
             "}"), postedMessage);
     }
 
+    @Test
+    public void testHandleMessageEventCompactJson() {
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServer server = BrowserHttpServer.with((request, response) -> {
+                response.setStatus(HttpStatusCode.CREATED.setMessage("Custom CREATED Message 123"));
+                response.setEntity(
+                    HttpEntity.EMPTY.addHeader(HttpHeaderName.CONTENT_LENGTH, 22L)
+                        .setBodyText("Response-" + request.bodyText())
+                );
+            },
+            port,
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+        event.data = "{\"id\": 1, \"body\": \"body-text-123\"}";
+
+        server.handleMessageEvent(event);
+        server.stop();
+
+        this.checkEquals(
+            Lists.of("{\"id\":1,\"status-code\":201,\"status-message\":\"Custom CREATED Message 123\",\"headers\":{\"Content-Length\":22},\"body\":\"Response-body-text-123\"}"),
+            postedMessage
+        );
+    }
+
+    @Test
+    public void testWithAsyncNullHandlerFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServer.withAsync(null, new TestMessagePort(), MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS));
+    }
+
+    @Test
+    public void testHandleMessageEventAsync() {
+        final List<Runnable> completions = Lists.array();
+
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServer server = BrowserHttpServer.withAsync(
+            (request, response, completion) -> {
+                response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+                response.setEntity(
+                    HttpEntity.EMPTY.setBodyText("Response-" + request.bodyText())
+                );
+                completions.add(completion);
+            },
+            port,
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+
+        final Window source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+
+        final MessageEvent<String> event1 = new MessageEvent<>("message");
+        event1.source = source;
+        event1.data = "{\"id\": 1, \"body\": \"body-1\"}";
+
+        final MessageEvent<String> event2 = new MessageEvent<>("message");
+        event2.source = source;
+        event2.data = "{\"id\": 2, \"body\": \"body-2\"}";
+
+        server.handleMessageEvent(event1);
+        server.handleMessageEvent(event2);
+
+        this.checkEquals(Lists.empty(), postedMessage, "nothing posted before completion");
+        this.checkEquals(2, completions.size(), "completions");
+
+        // complete out of order
+        completions.get(1).run();
+        completions.get(0).run();
+        server.stop();
+
+        this.checkEquals(
+            Lists.of(
+                "{\"id\":2,\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Response-body-2\"}",
+                "{\"id\":1,\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Response-body-1\"}"
+            ),
+            postedMessage
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventWithId() {
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServer server = BrowserHttpServer.with((request, response) -> {
+            response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+            response.setEntity(
+                HttpEntity.EMPTY.setBodyText("Response-" + request.bodyText())
+            );
+        }, port, MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS);
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+
+        final Window source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+
+        final MessageEvent<String> event1 = new MessageEvent<>("message");
+        event1.source = source;
+        event1.data = "{\"id\": 1, \"body\": \"body-1\"}";
+
+        final MessageEvent<String> event2 = new MessageEvent<>("message");
+        event2.source = source;
+        event2.data = "{\"id\": \"two\", \"body\": \"body-2\"}";
+
+        server.handleMessageEvent(event1);
+        server.handleMessageEvent(event2);
+        server.stop();
+
+        this.checkEquals(Lists.of("{\n" +
+                "  \"id\": 1,\n" +
+                "  \"status-code\": 200,\n" +
+                "  \"status-message\": \"OK\",\n" +
+                "  \"body\": \"Response-body-1\"\n" +
+                "}",
+            "{\n" +
+                "  \"id\": \"two\",\n" +
+                "  \"status-code\": 200,\n" +
+                "  \"status-message\": \"OK\",\n" +
+                "  \"body\": \"Response-body-2\"\n" +
+                "}"), postedMessage);
+    }
+
+    @Test
+    public void testHandleMessageEventBatch() {
+        final List<Runnable> completions = Lists.array();
+
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServer server = BrowserHttpServer.withAsync(
+            (request, response, completion) -> {
+                response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+                response.setEntity(
+                    HttpEntity.EMPTY.setBodyText("Response-" + request.bodyText())
+                );
+                completions.add(completion);
+            },
+            port,
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+        event.data = "[{\"id\": 1, \"body\": \"body-1\"}, {\"id\": 2, \"body\": \"body-2\"}]";
+
+        server.handleMessageEvent(event);
+        this.checkEquals(2, completions.size(), "completions");
+
+        // complete out of order, responses remain in request order
+        completions.get(1).run();
+        this.checkEquals(Lists.empty(), postedMessage, "nothing posted before the last completion");
+
+        completions.get(0).run();
+        server.stop();
+
+        this.checkEquals(
+            Lists.of(
+                "[{\"id\":1,\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Response-body-1\"},{\"id\":2,\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Response-body-2\"}]"
+            ),
+            postedMessage
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventBatchInteractiveBeforeBackground() {
+        final List<String> handled = Lists.array();
+
+        final BrowserHttpServer server = BrowserHttpServer.with(
+            (request, response) -> {
+                handled.add(request.bodyText());
+                response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+            },
+            new TestMessagePort(),
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+        event.data = "[{\"id\": 1, \"priority\": \"background\", \"body\": \"body-1\"}, {\"id\": 2, \"headers\": {\"Priority\": \"u=5\"}, \"body\": \"body-2\"}, {\"id\": 3, \"body\": \"body-3\"}]";
+
+        server.handleMessageEvent(event);
+        server.stop();
+
+        this.checkEquals(
+            Lists.of("body-3", "body-1", "body-2"),
+            handled,
+            "handled"
+        );
+        this.checkEquals(
+            Lists.of(
+                "[{\"id\":1,\"status-code\":200,\"status-message\":\"OK\"},{\"id\":2,\"status-code\":200,\"status-message\":\"OK\"},{\"id\":3,\"status-code\":200,\"status-message\":\"OK\"}]"
+            ),
+            postedMessage,
+            "responses in request order"
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventBatchTimeSlice() {
+        final List<String> handled = Lists.array();
+        final long[] now = new long[1];
+        final List<Runnable> scheduled = Lists.array();
+
+        final BrowserHttpServer server = BrowserHttpServer.with(
+            (request, response) -> {
+                handled.add(request.bodyText());
+                now[0] += 5;
+                response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+            },
+            new TestMessagePort(),
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS.setTimeSliceMillis(8)
+        );
+        server.clock = () -> now[0];
+        server.scheduler = scheduled::add;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+        event.data = "[{\"id\": 1, \"body\": \"body-1\"}, {\"id\": 2, \"body\": \"body-2\"}, {\"id\": 3, \"body\": \"body-3\"}]";
+
+        server.handleMessageEvent(event);
+        this.checkEquals(Lists.empty(), handled, "nothing handled before the drain");
+
+        scheduled.remove(0)
+            .run();
+        this.checkEquals(Lists.of("body-1", "body-2"), handled, "handled in first slice");
+        this.checkEquals(1, scheduled.size(), "scheduled");
+        this.checkEquals(Lists.empty(), postedMessage, "nothing posted before the batch completes");
+
+        scheduled.remove(0)
+            .run();
+        server.stop();
+
+        this.checkEquals(Lists.of("body-1", "body-2", "body-3"), handled, "handled");
+        this.checkEquals(1, postedMessage.size(), "posted");
+    }
+
+    @Test
+    public void testHandleMessageEventBurstInteractiveBeforeBackground() {
+        final List<String> handled = Lists.array();
+        final List<Runnable> scheduled = Lists.array();
+
+        final BrowserHttpServer server = BrowserHttpServer.with(
+            (request, response) -> {
+                handled.add(request.bodyText());
+                response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+            },
+            new TestMessagePort(),
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = scheduled::add;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+        final Window source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+
+        final MessageEvent<String> event1 = new MessageEvent<>("message");
+        event1.source = source;
+        event1.data = "{\"id\": 1, \"priority\": \"background\", \"body\": \"body-1\"}";
+        server.handleMessageEvent(event1);
+
+        final MessageEvent<String> event2 = new MessageEvent<>("message");
+        event2.source = source;
+        event2.data = "{\"id\": 2, \"body\": \"body-2\"}";
+        server.handleMessageEvent(event2);
+
+        this.checkEquals(Lists.empty(), handled, "nothing handled before the drain");
+        this.checkEquals(1, scheduled.size(), "only a single drain scheduled");
+
+        scheduled.remove(0)
+            .run();
+        server.stop();
+
+        this.checkEquals(Lists.of("body-2", "body-1"), handled, "handled");
+        this.checkEquals(2, postedMessage.size(), "posted");
+    }
+
+    @Test
+    public void testHandleMessageEventAbortQueued() {
+        final List<String> handled = Lists.array();
+        final long[] now = new long[1];
+        final List<Runnable> scheduled = Lists.array();
+
+        final BrowserHttpServer server = BrowserHttpServer.with(
+            (request, response) -> {
+                handled.add(request.bodyText());
+                now[0] += 10;
+                response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+            },
+            new TestMessagePort(),
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS.setTimeSliceMillis(8)
+        );
+        server.clock = () -> now[0];
+        server.scheduler = scheduled::add;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+        final Window source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+
+        final MessageEvent<String> batch = new MessageEvent<>("message");
+        batch.source = source;
+        batch.data = "[{\"id\": 1, \"body\": \"body-1\"}, {\"id\": 2, \"body\": \"body-2\"}]";
+        server.handleMessageEvent(batch);
+
+        scheduled.remove(0)
+            .run();
+        this.checkEquals(Lists.of("body-1"), handled, "handled in first slice");
+        this.checkEquals(1, server.abortableCount(), "abortable");
+
+        final MessageEvent<String> abort = new MessageEvent<>("message");
+        abort.source = source;
+        abort.data = "{\"abort\": 2}";
+        server.handleMessageEvent(abort);
+
+        scheduled.remove(0)
+            .run();
+        server.stop();
+
+        this.checkEquals(Lists.of("body-1"), handled, "aborted request not handled");
+        this.checkEquals(0, server.abortableCount(), "abortable after abort");
+        this.checkEquals(0, server.queueDepth(), "queueDepth");
+        this.checkEquals(
+            Lists.of(
+                "[{\"id\":1,\"status-code\":200,\"status-message\":\"OK\"},{\"id\":2,\"status-code\":499,\"status-message\":\"Client Closed Request\"}]"
+            ),
+            postedMessage
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventAbortQueuedSingle() {
+        final List<String> handled = Lists.array();
+        final List<Runnable> scheduled = Lists.array();
+
+        final BrowserHttpServer server = BrowserHttpServer.with(
+            (request, response) -> {
+                handled.add(request.bodyText());
+                response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+            },
+            new TestMessagePort(),
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = scheduled::add;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+        final Window source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.source = source;
+        event.data = "{\"id\": 1, \"body\": \"body-1\"}";
+        server.handleMessageEvent(event);
+
+        final MessageEvent<String> abort = new MessageEvent<>("message");
+        abort.source = source;
+        abort.data = "{\"abort\": 1}";
+        server.handleMessageEvent(abort);
+
+        scheduled.remove(0)
+            .run();
+        server.stop();
+
+        this.checkEquals(Lists.empty(), handled, "aborted request not handled");
+        this.checkEquals(
+            Lists.of(
+                "{\"id\":1,\"status-code\":499,\"status-message\":\"Client Closed Request\"}"
+            ),
+            postedMessage
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventAbortRunning() {
+        final List<Runnable> completions = Lists.array();
+        final List<HttpRequest> requests = Lists.array();
+
+        final BrowserHttpServer server = BrowserHttpServer.withAsync(
+            (request, response, completion) -> {
+                response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+                requests.add(request);
+                completions.add(completion);
+            },
+            new TestMessagePort(),
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+        final Window source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+
+        for (int i = 1; i <= 2; i++) {
+            final MessageEvent<String> event = new MessageEvent<>("message");
+            event.source = source;
+            event.data = "{\"id\": " + i + ", \"url\": \"/path" + i + "\"}";
+            server.handleMessageEvent(event);
+        }
+
+        final MessageEvent<String> abort = new MessageEvent<>("message");
+        abort.source = source;
+        abort.data = "{\"abort\": 1}";
+        server.handleMessageEvent(abort);
+
+        this.checkEquals(true, BrowserHttpServers.isAborted(requests.get(0)), "first request aborted");
+        this.checkEquals(false, BrowserHttpServers.isAborted(requests.get(1)), "second request not aborted");
+        this.checkEquals(Lists.empty(), postedMessage, "abort not answered");
+
+        completions.get(0)
+            .run();
+        completions.get(1)
+            .run();
+        server.stop();
+
+        this.checkEquals(0, server.abortableCount(), "abortable");
+        this.checkEquals(
+            Lists.of(
+                "{\"id\":1,\"status-code\":499,\"status-message\":\"Client Closed Request\"}",
+                "{\"id\":2,\"status-code\":200,\"status-message\":\"OK\"}"
+            ),
+            postedMessage,
+            "aborted response replaced"
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventAbortOtherClientIgnored() {
+        final List<HttpRequest> requests = Lists.array();
+
+        final BrowserHttpServer server = BrowserHttpServer.withAsync(
+            (request, response, completion) -> requests.add(request),
+            new TestMessagePort(),
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.source = new Window();
+        event.data = "{\"id\": 1, \"url\": \"/path1\"}";
+        server.handleMessageEvent(event);
+
+        final MessageEvent<String> abort = new MessageEvent<>("message");
+        abort.source = new Window();
+        abort.data = "{\"abort\": 1}";
+        server.handleMessageEvent(abort);
+        server.stop();
+
+        this.checkEquals(false, BrowserHttpServers.isAborted(requests.get(0)));
+    }
+
+    @Test
+    public void testHandleMessageEventEmptyBatch() {
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServer server = BrowserHttpServer.with(
+            HANDLER,
+            port,
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+        event.data = "[]";
+
+        server.handleMessageEvent(event);
+        server.stop();
+
+        this.checkEquals(
+            Lists.of("[]"),
+            postedMessage
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventCoalesceResponses() {
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServer server = BrowserHttpServer.with(
+            (request, response) -> {
+                response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+                response.setEntity(
+                    HttpEntity.EMPTY.setBodyText("Response-" + request.bodyText())
+                );
+            },
+            port,
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS.setCoalesceResponses(true)
+        );
+
+        final List<Runnable> microtasks = Lists.array();
+        server.microtasks = microtasks::add;
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final List<String> postedMessage1 = Lists.array();
+        final Window source1 = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage1.add(message.toString());
+            }
+        };
+
+        final List<String> postedMessage2 = Lists.array();
+        final Window source2 = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage2.add(message.toString());
+            }
+        };
+
+        final MessageEvent<String> event1 = new MessageEvent<>("message");
+        event1.source = source1;
+        event1.data = "{\"id\": 1, \"body\": \"body-1\"}";
+
+        final MessageEvent<String> event2 = new MessageEvent<>("message");
+        event2.source = source2;
+        event2.data = "{\"id\": 2, \"body\": \"body-2\"}";
+
+        final MessageEvent<String> event3 = new MessageEvent<>("message");
+        event3.source = source1;
+        event3.data = "{\"id\": 3, \"body\": \"body-3\"}";
+
+        server.handleMessageEvent(event1);
+        server.handleMessageEvent(event2);
+        server.handleMessageEvent(event3);
+
+        this.checkEquals(Lists.empty(), postedMessage1, "nothing posted before the microtask");
+        this.checkEquals(1, microtasks.size(), "only a single flush scheduled");
+
+        microtasks.get(0).run();
+        server.stop();
+
+        this.checkEquals(
+            Lists.of(
+                "{\"coalesced\":2,\"responses\":[{\"id\":1,\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Response-body-1\"},{\"id\":3,\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Response-body-3\"}]}"
+            ),
+            postedMessage1,
+            "source1"
+        );
+        this.checkEquals(
+            Lists.of(
+                "{\"id\":2,\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Response-body-2\"}"
+            ),
+            postedMessage2,
+            "source2"
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventMalformedJsonBadRequest() {
+        this.handleMessageEventAndCheckStatus(
+            HANDLER,
+            "{\"id\": 1, ",
+            HttpStatusCode.BAD_REQUEST
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventNotObjectBadRequest() {
+        this.handleMessageEventAndCheckStatus(
+            HANDLER,
+            "123",
+            HttpStatusCode.BAD_REQUEST
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventInvalidUrlBadRequest() {
+        final String message = this.handleMessageEventAndCheckStatus(
+            (request, response) -> request.url(),
+            "{\"id\": 1}",
+            HttpStatusCode.BAD_REQUEST
+        );
+        this.checkEquals(
+            JsonNode.string(
+                HttpStatusCode.BAD_REQUEST.status()
+                    .message()
+            ),
+            JsonNode.parse(message)
+                .objectOrFail()
+                .getOrFail(JsonPropertyName.with("status-message")),
+            () -> message
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventAsyncBadRequestFailure() {
+        final String message = this.handleMessageEventAndCheckStatus(
+            (request, response, completion) -> {
+                response.setEntity(HttpEntity.EMPTY.setBodyText("Partial"));
+                ((BrowserHttpServerHttpResponse) response).setFailure(
+                    BrowserHttpServerBadRequestException.with(
+                        new IllegalArgumentException("Secret failure detail")
+                    )
+                );
+                completion.run();
+            },
+            "{\"id\": 1, \"url\": \"/path1\"}",
+            HttpStatusCode.BAD_REQUEST
+        );
+        this.checkEquals(
+            false,
+            message.contains("Secret") || message.contains("Partial"),
+            () -> message
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventAsyncFailureInternalServerError() {
+        final String message = this.handleMessageEventAndCheckStatus(
+            (request, response, completion) -> {
+                response.setEntity(HttpEntity.EMPTY.setBodyText("Partial"));
+                ((BrowserHttpServerHttpResponse) response).setFailure(
+                    new IllegalStateException("Secret failure detail")
+                );
+                completion.run();
+            },
+            "{\"id\": 1, \"url\": \"/path1\"}",
+            HttpStatusCode.INTERNAL_SERVER_ERROR
+        );
+        this.checkEquals(
+            true,
+            message.startsWith("{\"id\":1,") && false == message.contains("Partial"),
+            () -> message
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventHandlerFailsInternalServerError() {
+        final String message = this.handleMessageEventAndCheckStatus(
+            (request, response) -> {
+                response.setEntity(HttpEntity.EMPTY.setBodyText("Partial"));
+                throw new IllegalStateException("Secret failure detail");
+            },
+            "{\"id\": 1, \"url\": \"/path1\"}",
+            HttpStatusCode.INTERNAL_SERVER_ERROR
+        );
+
+        final JsonObject json = JsonNode.parse(message)
+            .objectOrFail();
+        this.checkEquals(
+            JsonNode.number(1),
+            json.getOrFail(JsonPropertyName.with("id")),
+            "id"
+        );
+        this.checkEquals(
+            false,
+            json.get(JsonPropertyName.with("body")).isPresent(),
+            "partial body discarded"
+        );
+        this.checkEquals(
+            false,
+            message.contains("Secret"),
+            "exception message not sent"
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventHandlerFailsAfterCompletion() {
+        final String message = this.handleMessageEventAndCheckStatus(
+            (request, response, completion) -> {
+                response.setStatus(HttpStatusCode.OK.status());
+                completion.run();
+                throw new IllegalStateException("After completion");
+            },
+            "{\"id\": 1, \"url\": \"/path1\"}",
+            HttpStatusCode.OK
+        );
+        assertNotNull(message);
+    }
+
+    @Test
+    public void testHandleMessageEventMaxMessageSize() {
+        this.handleMessageEventAndCheckStatus(
+            HANDLER,
+            "{\"id\": 1, \"url\": \"/path1\", \"body\": \"body-1\"}",
+            OPTIONS.setMaxMessageSize(10),
+            HttpStatusCode.withCode(413)
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventMaxMessageSizeNotExceeded() {
+        this.handleMessageEventAndCheckStatus(
+            (request, response) -> response.setStatus(HttpStatusCode.OK.status()),
+            "{\"id\": 1, \"url\": \"/path1\", \"body\": \"body-1\"}",
+            OPTIONS.setMaxMessageSize(1000),
+            HttpStatusCode.OK
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventMaxHeaderCount() {
+        final String message = this.handleMessageEventAndCheckStatus(
+            (request, response) -> {
+                throw new UnsupportedOperationException();
+            },
+            "{\"id\": 1, \"url\": \"/path1\", \"headers\": {\"X-Custom\": [\"a\", \"b\"], \"Content-Length\": 0}}",
+            OPTIONS.setMaxHeaderCount(2),
+            HttpStatusCode.withCode(431)
+        );
+        this.checkEquals(
+            true,
+            message.startsWith("{\"id\":1,"),
+            () -> message
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventMaxHeaderCountNotExceeded() {
+        this.handleMessageEventAndCheckStatus(
+            (request, response) -> response.setStatus(HttpStatusCode.OK.status()),
+            "{\"id\": 1, \"url\": \"/path1\", \"headers\": {\"X-Custom\": [\"a\", \"b\"]}}",
+            OPTIONS.setMaxHeaderCount(2),
+            HttpStatusCode.OK
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventMaxQueueDepth() {
+        final List<Runnable> completions = Lists.array();
+        final List<String> postedMessages = Lists.array();
+
+        final BrowserHttpServer server = BrowserHttpServer.withAsync(
+            (request, response, completion) -> {
+                response.setStatus(HttpStatusCode.OK.status());
+                completions.add(completion);
+            },
+            new TestMessagePort(),
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS.setMaxQueueDepth(1)
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final Window source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessages.add(message.toString());
+            }
+        };
+
+        for (int i = 1; i <= 2; i++) {
+            final MessageEvent<String> event = new MessageEvent<>("message");
+            event.source = source;
+            event.data = "{\"id\": " + i + ", \"url\": \"/path" + i + "\"}";
+            server.handleMessageEvent(event);
+        }
+
+        this.checkEquals(1, completions.size(), "handled");
+        this.checkEquals(1, server.queueDepth(), "queueDepth");
+        this.checkEquals(
+            Lists.of(
+                "{\"id\":2,\"status-code\":503,\"status-message\":\"Service Unavailable\",\"queue-depth\":1,\"headers\":{\"Retry-After\":1}}"
+            ),
+            postedMessages,
+            "rejected"
+        );
+
+        completions.get(0)
+            .run();
+        server.stop();
+
+        this.checkEquals(0, server.queueDepth(), "queueDepth after completion");
+        this.checkEquals(
+            "{\"id\":1,\"status-code\":200,\"status-message\":\"OK\",\"queue-depth\":0}",
+            postedMessages.get(1),
+            "completed"
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventMaxQueueDepthNotExceeded() {
+        final String message = this.handleMessageEventAndCheckStatus(
+            (request, response) -> response.setStatus(HttpStatusCode.OK.status()),
+            "{\"id\": 1, \"url\": \"/path1\"}",
+            OPTIONS.setMaxQueueDepth(10),
+            HttpStatusCode.OK
+        );
+        this.checkEquals(
+            JsonNode.number(0),
+            JsonNode.parse(message)
+                .objectOrFail()
+                .getOrFail(JsonPropertyName.with("queue-depth")),
+            () -> message
+        );
+    }
+
+    @Test
+    public void testHandleMessageEventUnboundedQueueWithoutQueueDepth() {
+        final String message = this.handleMessageEventAndCheckStatus(
+            (request, response) -> response.setStatus(HttpStatusCode.OK.status()),
+            "{\"id\": 1, \"url\": \"/path1\"}",
+            HttpStatusCode.OK
+        );
+        this.checkEquals(
+            false,
+            message.contains("queue-depth"),
+            () -> message
+        );
+    }
+
+    private String handleMessageEventAndCheckStatus(final HttpHandler handler,
+                                                    final String data,
+                                                    final HttpStatusCode expected) {
+        return this.handleMessageEventAndCheckStatus(
+            handler,
+            data,
+            OPTIONS,
+            expected
+        );
+    }
+
+    private String handleMessageEventAndCheckStatus(final HttpHandler handler,
+                                                    final String data,
+                                                    final BrowserHttpServerOptions options,
+                                                    final HttpStatusCode expected) {
+        return this.handleMessageEventAndCheckStatus(
+            BrowserHttpServerHttpHandlerAsyncHttpHandler.with(handler),
+            data,
+            options,
+            expected
+        );
+    }
+
+    private String handleMessageEventAndCheckStatus(final BrowserHttpServerAsyncHttpHandler handler,
+                                                    final String data,
+                                                    final HttpStatusCode expected) {
+        return this.handleMessageEventAndCheckStatus(
+            handler,
+            data,
+            OPTIONS,
+            expected
+        );
+    }
+
+    private String handleMessageEventAndCheckStatus(final BrowserHttpServerAsyncHttpHandler handler,
+                                                    final String data,
+                                                    final BrowserHttpServerOptions options,
+                                                    final HttpStatusCode expected) {
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServer server = BrowserHttpServer.withAsync(
+            handler,
+            port,
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            options
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final List<String> postedMessage = Lists.array();
+
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.source = new Window() {
+            @Override
+            public void postMessage(final Object message,
+                                    final String targetOrigin) {
+                postedMessage.add(message.toString());
+            }
+        };
+        event.data = data;
+
+        server.handleMessageEvent(event);
+        server.stop();
+
+        this.checkEquals(1, postedMessage.size(), () -> "posted messages " + postedMessage);
+
+        final String message = postedMessage.get(0);
+        this.checkEquals(
+            JsonNode.number(expected.code()),
+            JsonNode.parse(message)
+                .objectOrFail()
+                .getOrFail(JsonPropertyName.with("status-code")),
+            () -> message
+        );
+        return message;
+    }
+
+    @Test
+    public void testHandleMessageEventWithoutSourceRepliesToTarget() {
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServer server = BrowserHttpServer.with((request, response) -> {
+                response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+                response.setEntity(
+                    HttpEntity.EMPTY.setBodyText("Response-" + request.bodyText())
+                );
+            },
+            port,
+            MESSAGE_FILTER,
+            TARGET_ORIGIN,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.target = port;
+        event.data = "{\"id\": 1, \"body\": \"body-1\"}";
+
+        server.handleMessageEvent(event);
+        server.stop();
+
+        this.checkEquals(
+            Lists.of("{\"id\":1,\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Response-body-1\"}"),
+            port.messages
+        );
+    }
+
+    // sharedWorker.....................................................................................................
+
+    @Test
+    public void testSharedWorkerNullHandlerFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServer.sharedWorker(null, new TestEventTarget(), MESSAGE_FILTER, FORMAT, OPTIONS));
+    }
+
+    @Test
+    public void testSharedWorkerNullConnectTargetFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServer.sharedWorker(ASYNC_HANDLER, null, MESSAGE_FILTER, FORMAT, OPTIONS));
+    }
+
+    @Test
+    public void testSharedWorkerStartListensForConnect() {
+        final TestEventTarget target = new TestEventTarget();
+        final BrowserHttpServer server = BrowserHttpServer.sharedWorker(ASYNC_HANDLER, target, MESSAGE_FILTER, FORMAT, OPTIONS);
+        server.start();
+
+        this.checkEquals("connect", target.type, "type");
+        assertNotNull(target.eventListener, "eventListener");
+
+        server.stop();
+        this.checkEquals(null, target.eventListener, "eventListener");
+    }
+
+    @Test
+    public void testSharedWorkerRespondsToOriginatingPort() {
+        final BrowserHttpServer server = BrowserHttpServer.sharedWorker(
+            BrowserHttpServerHttpHandlerAsyncHttpHandler.with(
+                (request, response) -> {
+                    response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+                    response.setEntity(
+                        HttpEntity.EMPTY.setBodyText("Response-" + request.bodyText())
+                    );
+                }
+            ),
+            new TestEventTarget(),
+            MESSAGE_FILTER,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = Runnable::run;
+        server.start();
+
+        final TestMessagePort port1 = new TestMessagePort();
+        final TestMessagePort port2 = new TestMessagePort();
+        server.connect(port1);
+        server.connect(port2);
+
+        this.checkEquals(true, port1.started, "port1 started");
+        this.checkEquals(true, port2.started, "port2 started");
+
+        final MessageEvent<String> event1 = new MessageEvent<>("message");
+        event1.target = port1;
+        event1.data = "{\"body\": \"tab-1\"}";
+
+        final MessageEvent<String> event2 = new MessageEvent<>("message");
+        event2.target = port2;
+        event2.data = "{\"body\": \"tab-2\"}";
+
+        server.handleMessageEvent(event2);
+        server.handleMessageEvent(event1);
+
+        this.checkEquals(
+            Lists.of("{\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Response-tab-1\"}"),
+            port1.messages,
+            "port1"
+        );
+        this.checkEquals(
+            Lists.of("{\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Response-tab-2\"}"),
+            port2.messages,
+            "port2"
+        );
+
+        server.stop();
+
+        this.checkEquals(true, port1.closed, "port1 closed");
+        this.checkEquals(true, port2.closed, "port2 closed");
+    }
+
+    @Test
+    public void testSharedWorkerPortCloseDisconnects() {
+        this.sharedWorkerPortEventDisconnectsAndCheck("close");
+    }
+
+    @Test
+    public void testSharedWorkerPortMessageErrorDisconnects() {
+        this.sharedWorkerPortEventDisconnectsAndCheck("messageerror");
+    }
+
+    private void sharedWorkerPortEventDisconnectsAndCheck(final String type) {
+        final BrowserHttpServer server = BrowserHttpServer.sharedWorker(
+            ASYNC_HANDLER,
+            new TestEventTarget(),
+            MESSAGE_FILTER,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.start();
+
+        final TestMessagePort port = new TestMessagePort();
+        server.connect(port);
+        this.checkEquals(1, server.connectedPortCount(), "connected");
+
+        port.fire(type);
+
+        this.checkEquals(0, server.connectedPortCount(), "connected after " + type);
+        this.checkEquals(true, port.closed, "closed");
+        this.checkEquals(Maps.empty(), port.eventListeners, "eventListeners");
+
+        server.stop();
+    }
+
+    @Test
+    public void testSharedWorkerDisconnectAbortsRequests() {
+        final List<Runnable> scheduled = Lists.array();
+
+        final BrowserHttpServer server = BrowserHttpServer.sharedWorker(
+            ASYNC_HANDLER,
+            new TestEventTarget(),
+            MESSAGE_FILTER,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.scheduler = scheduled::add;
+        server.start();
+
+        final TestMessagePort port = new TestMessagePort();
+        server.connect(port);
+
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.target = port;
+        event.data = "{\"id\": 1, \"url\": \"/path1\"}";
+        server.handleMessageEvent(event);
+
+        this.checkEquals(1, server.abortableCount(), "abortable");
+
+        server.disconnect(port);
+
+        this.checkEquals(0, server.abortableCount(), "abortable after disconnect");
+        this.checkEquals(0, server.queueDepth(), "queueDepth");
+
+        server.stop();
+    }
+
+    @Test
+    public void testSharedWorkerMaxConnectedPorts() {
+        final BrowserHttpServer server = BrowserHttpServer.sharedWorker(
+            ASYNC_HANDLER,
+            new TestEventTarget(),
+            MESSAGE_FILTER,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        server.start();
+
+        final List<TestMessagePort> ports = Lists.array();
+        for (int i = 0; i <= BrowserHttpServer.MAX_CONNECTED_PORTS; i++) {
+            final TestMessagePort port = new TestMessagePort();
+            server.connect(port);
+            ports.add(port);
+        }
+
+        this.checkEquals(BrowserHttpServer.MAX_CONNECTED_PORTS, server.connectedPortCount(), "connected");
+        this.checkEquals(true, ports.get(0).closed, "oldest port closed");
+        this.checkEquals(false, ports.get(1).closed, "second port closed");
+
+        server.stop();
+    }
+
+    @Test
+    public void testSharedWorkerMaxConnectedPortsLeastRecentlyActiveDisconnected() {
+        final BrowserHttpServer server = BrowserHttpServer.sharedWorker(
+            ASYNC_HANDLER,
+            new TestEventTarget(),
+            MESSAGE_FILTER,
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            OPTIONS
+        );
+        final List<Runnable> scheduled = Lists.array();
+        server.scheduler = scheduled::add;
+        server.start();
+
+        final List<TestMessagePort> ports = Lists.array();
+        for (int i = 0; i < BrowserHttpServer.MAX_CONNECTED_PORTS; i++) {
+            final TestMessagePort port = new TestMessagePort();
+            server.connect(port);
+            ports.add(port);
+        }
+
+        // the oldest port is still in use
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.target = ports.get(0);
+        event.data = "{\"id\": 1, \"url\": \"/path1\"}";
+        server.handleMessageEvent(event);
+
+        server.connect(new TestMessagePort());
+
+        this.checkEquals(BrowserHttpServer.MAX_CONNECTED_PORTS, server.connectedPortCount(), "connected");
+        this.checkEquals(false, ports.get(0).closed, "active oldest port closed");
+        this.checkEquals(true, ports.get(1).closed, "least recently active port closed");
+
+        server.stop();
+    }
+
     /**
      * Override the key methods that are native to make things work in a JVM.
      */
@@ -158,29 +1421,77 @@ public final class BrowserHttpServerTest implements ClassTesting2<BrowserHttpSer
         public void addEventListener(final String type,
                                      final EventListener listener,
                                      final boolean capture) {
-            this.eventListener = listener;
+            this.eventListeners.put(type, listener);
         }
 
         @Override
         public void removeEventListener(final String type,
                                         final EventListener listener) {
-            assertSame(this.eventListener, listener, "removed from EventListener");
-            this.eventListener = null;
+            assertSame(this.eventListeners.remove(type), listener, "removed from EventListener");
         }
 
         @Override
         public boolean dispatchEvent(final Event event) {
-            this.eventListener.handleEvent(event);
+            this.eventListeners.get("message")
+                .handleEvent(event);
             return true;
         }
 
+        void fire(final String type) {
+            final Event event = new Event(type);
+            event.target = this;
+            this.eventListeners.get(type)
+                .handleEvent(event);
+        }
+
         @Override
         public void postMessage(final Object message) {
             this.messages.add(message);
         }
 
+        @Override
+        public void postMessage(final Object message,
+                                final Transferable[] transfer) {
+            this.messages.add(message);
+        }
+
+        @Override
+        public void start() {
+            this.started = true;
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+
+        final Map<String, EventListener> eventListeners = Maps.hash();
+        List<Object> messages = Lists.array();
+        boolean started;
+        boolean closed;
+    }
+
+    /**
+     * Override the key methods that are native to make things work in a JVM.
+     */
+    private static class TestEventTarget extends EventTarget {
+        @Override
+        public void addEventListener(final String type,
+                                     final EventListener listener,
+                                     final boolean capture) {
+            this.type = type;
+            this.eventListener = listener;
+        }
+
+        @Override
+        public void removeEventListener(final String type,
+                                        final EventListener listener) {
+            assertSame(this.eventListener, listener, "removed from EventListener");
+            this.eventListener = null;
+        }
+
+        String type;
         EventListener eventListener;
-        List<Object> messages;
     }
 
     //@Test(timeout = 1000)
@@ -241,7 +1552,7 @@ public final class BrowserHttpServerTest implements ClassTesting2<BrowserHttpSer
 
     @Test
     public void testToString() {
-        this.toStringAndCheck(BrowserHttpServer.with(HANDLER, new TestMessagePort(), MESSAGE_FILTER, TARGET_ORIGIN), HANDLER.toString());
+        this.toStringAndCheck(BrowserHttpServer.with(HANDLER, new TestMessagePort(), MESSAGE_FILTER, TARGET_ORIGIN, FORMAT, OPTIONS), HANDLER.toString());
     }
 
     // ClassTesting.....................................................................................................
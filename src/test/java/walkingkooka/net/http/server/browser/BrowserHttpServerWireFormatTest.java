@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.net.http.HttpEntity;
+import walkingkooka.net.http.HttpStatusCode;
+
+import java.util.List;
+
+public final class BrowserHttpServerWireFormatTest extends BrowserHttpServerTestCase<BrowserHttpServerWireFormat> {
+
+    @Test
+    public void testCompactJson() {
+        this.responseAndCheck(
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            "{\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Body123\"}"
+        );
+    }
+
+    @Test
+    public void testPrettyJson() {
+        this.responseAndCheck(
+            BrowserHttpServerWireFormat.PRETTY_JSON,
+            "{\n" +
+                "  \"status-code\": 200,\n" +
+                "  \"status-message\": \"OK\",\n" +
+                "  \"body\": \"Body123\"\n" +
+                "}"
+        );
+    }
+
+    @Test
+    public void testCompactJsonRequest() {
+        this.checkEquals(
+            "/path1",
+            BrowserHttpServerWireFormat.COMPACT_JSON.request("{\"url\": \"/path1\"}")
+                .urlText()
+        );
+    }
+
+    @Test
+    public void testPrettyJsonRequest() {
+        this.checkEquals(
+            "/path1",
+            BrowserHttpServerWireFormat.PRETTY_JSON.request("{\"url\": \"/path1\"}")
+                .urlText()
+        );
+    }
+
+    @Test
+    public void testCompactJsonSize() {
+        this.checkEquals(
+            16L,
+            BrowserHttpServerWireFormat.COMPACT_JSON.size("{\"url\": \"/path\"}")
+        );
+    }
+
+    @Test
+    public void testIsBatch() {
+        this.checkEquals(
+            true,
+            BrowserHttpServerWireFormat.COMPACT_JSON.isBatch(" [{\"url\": \"/path1\"}]")
+        );
+    }
+
+    @Test
+    public void testIsBatchObject() {
+        this.checkEquals(
+            false,
+            BrowserHttpServerWireFormat.COMPACT_JSON.isBatch("{\"url\": \"/path1\"}")
+        );
+    }
+
+    @Test
+    public void testCompactJsonBatch() {
+        final List<BrowserHttpServerHttpRequest> requests = BrowserHttpServerWireFormat.COMPACT_JSON.batch("[{\"url\": \"/path1\"}, {\"url\": \"/path2\"}]");
+        this.checkEquals(2, requests.size(), "requests");
+        this.checkEquals("/path1", requests.get(0).urlText());
+        this.checkEquals("/path2", requests.get(1).urlText());
+    }
+
+    @Test
+    public void testCompactJsonBatchResponse() {
+        this.checkEquals(
+            "[{\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Body123\"},{\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Body123\"}]",
+            BrowserHttpServerWireFormat.COMPACT_JSON.batchResponse(
+                Lists.of(
+                    this.response(),
+                    this.response()
+                ),
+                Lists.array()
+            )
+        );
+    }
+
+    @Test
+    public void testCompactJsonBatchResponseEmpty() {
+        this.checkEquals(
+            "[]",
+            BrowserHttpServerWireFormat.COMPACT_JSON.batchResponse(
+                Lists.empty(),
+                Lists.array()
+            )
+        );
+    }
+
+    @Test
+    public void testCompactJsonCoalescedResponse() {
+        this.checkEquals(
+            "{\"coalesced\":2,\"responses\":[{\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Body123\"},{\"status-code\":200,\"status-message\":\"OK\",\"body\":\"Body123\"}]}",
+            BrowserHttpServerWireFormat.COMPACT_JSON.coalescedResponse(
+                Lists.of(
+                    this.response(),
+                    this.response()
+                ),
+                Lists.array()
+            )
+        );
+    }
+
+    @Test
+    public void testCoalescedResponseCount() {
+        for (final BrowserHttpServerWireFormat format : new BrowserHttpServerWireFormat[]{
+            BrowserHttpServerWireFormat.COMPACT_JSON,
+            BrowserHttpServerWireFormat.PRETTY_JSON
+        }) {
+            this.checkEquals(
+                3,
+                BrowserHttpServerWorkerPool.responseCount(
+                    format.coalescedResponse(
+                        Lists.of(
+                            this.response(),
+                            this.response(),
+                            this.response()
+                        ),
+                        Lists.array()
+                    )
+                ),
+                format::toString
+            );
+        }
+    }
+
+    private void responseAndCheck(final BrowserHttpServerWireFormat format,
+                                  final String expected) {
+        this.checkEquals(
+            expected,
+            format.response(this.response(), Lists.array()),
+            format::toString
+        );
+    }
+
+    private BrowserHttpServerHttpResponse response() {
+        final BrowserHttpServerHttpResponse response = BrowserHttpServerHttpResponse.empty();
+        response.setStatus(HttpStatusCode.OK.setMessage("OK"));
+        response.setEntity(HttpEntity.EMPTY.setBodyText("Body123"));
+        return response;
+    }
+
+    @Override
+    public Class<BrowserHttpServerWireFormat> type() {
+        return BrowserHttpServerWireFormat.class;
+    }
+}
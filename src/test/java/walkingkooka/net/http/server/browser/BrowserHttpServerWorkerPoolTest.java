@@ -0,0 +1,362 @@
+/*
+ * Copyright 2020 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.net.http.server.browser;
+
+import elemental2.dom.Event;
+import elemental2.dom.EventListener;
+import elemental2.dom.MessageEvent;
+import elemental2.dom.MessagePort;
+import elemental2.dom.Worker;
+import org.junit.jupiter.api.Test;
+import walkingkooka.ToStringTesting;
+import walkingkooka.collect.list.Lists;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class BrowserHttpServerWorkerPoolTest extends BrowserHttpServerTestCase<BrowserHttpServerWorkerPool>
+    implements ToStringTesting<BrowserHttpServerWorkerPool> {
+
+    @Test
+    public void testWithNullPortFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServerWorkerPool.with(null, TestWorker::new, 1));
+    }
+
+    @Test
+    public void testWithNullWorkerFactoryFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServerWorkerPool.with(new TestMessagePort(), null, 1));
+    }
+
+    @Test
+    public void testWithZeroWorkerCountFails() {
+        assertThrows(IllegalArgumentException.class, () -> BrowserHttpServerWorkerPool.with(new TestMessagePort(), TestWorker::new, 0));
+    }
+
+    @Test
+    public void testStartTwiceFails() {
+        final BrowserHttpServerWorkerPool pool = BrowserHttpServerWorkerPool.with(new TestMessagePort(), TestWorker::new, 2);
+        pool.start();
+        assertThrows(IllegalStateException.class, pool::start);
+    }
+
+    @Test
+    public void testStopWithoutStartFails() {
+        final BrowserHttpServerWorkerPool pool = BrowserHttpServerWorkerPool.with(new TestMessagePort(), TestWorker::new, 2);
+        assertThrows(IllegalStateException.class, pool::stop);
+    }
+
+    @Test
+    public void testStartStop() {
+        final List<TestWorker> workers = Lists.array();
+        final BrowserHttpServerWorkerPool pool = BrowserHttpServerWorkerPool.with(new TestMessagePort(), factory(workers), 2);
+        pool.start();
+
+        this.checkEquals(2, workers.size(), "workers created");
+
+        pool.stop();
+
+        this.checkEquals(true, workers.get(0).terminated, "worker 0 terminated");
+        this.checkEquals(true, workers.get(1).terminated, "worker 1 terminated");
+    }
+
+    @Test
+    public void testStartStartsPort() {
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServerWorkerPool pool = BrowserHttpServerWorkerPool.with(port, TestWorker::new, 2);
+        pool.start();
+
+        this.checkEquals(true, port.started, "port started");
+
+        pool.stop();
+    }
+
+    @Test
+    public void testLeastOutstanding() {
+        final List<TestWorker> workers = Lists.array();
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServerWorkerPool pool = BrowserHttpServerWorkerPool.with(port, factory(workers), 3);
+        pool.start();
+
+        pool.handleMessageEvent(event("request-1"));
+        pool.handleMessageEvent(event("request-2"));
+        pool.handleMessageEvent(event("request-3"));
+
+        this.checkEquals(Lists.of("request-1"), workers.get(0).messages, "worker 0");
+        this.checkEquals(Lists.of("request-2"), workers.get(1).messages, "worker 1");
+        this.checkEquals(Lists.of("request-3"), workers.get(2).messages, "worker 2");
+
+        // worker 1 responds and should receive the next request
+        pool.handleWorkerMessageEvent(1, event("response-2"));
+        this.checkEquals(Lists.of("response-2"), port.messages, "responses");
+
+        pool.handleMessageEvent(event("request-4"));
+        this.checkEquals(Lists.of("request-2", "request-4"), workers.get(1).messages, "worker 1");
+
+        pool.handleMessageEvent(event("request-5"));
+        this.checkEquals(Lists.of("request-1", "request-5"), workers.get(0).messages, "worker 0");
+
+        this.checkEquals(2, pool.outstanding[0], "outstanding worker 0");
+        this.checkEquals(2, pool.outstanding[1], "outstanding worker 1");
+        this.checkEquals(1, pool.outstanding[2], "outstanding worker 2");
+
+        pool.stop();
+    }
+
+    @Test
+    public void testAbortPostedToAllWorkersWithoutCounting() {
+        final List<TestWorker> workers = Lists.array();
+        final BrowserHttpServerWorkerPool pool = BrowserHttpServerWorkerPool.with(new TestMessagePort(), factory(workers), 2);
+        pool.start();
+
+        pool.handleMessageEvent(event("{\"id\": 1, \"url\": \"/path1\"}"));
+        pool.handleMessageEvent(event("{\"abort\": 1}"));
+
+        this.checkEquals(Lists.of("{\"id\": 1, \"url\": \"/path1\"}", "{\"abort\": 1}"), workers.get(0).messages, "worker 0");
+        this.checkEquals(Lists.of("{\"abort\": 1}"), workers.get(1).messages, "worker 1");
+
+        this.checkEquals(1, pool.outstanding[0], "outstanding worker 0");
+        this.checkEquals(0, pool.outstanding[1], "outstanding worker 1");
+
+        pool.stop();
+    }
+
+    @Test
+    public void testAbortedRequestAnsweredOutstandingReturnsToZero() {
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServerWorkerPool pool = BrowserHttpServerWorkerPool.with(port, TestWorker::new, 1);
+        pool.start();
+
+        pool.handleMessageEvent(event("{\"id\": 1, \"url\": \"/path1\"}"));
+        pool.handleMessageEvent(event("{\"abort\": 1}"));
+        this.checkEquals(1, pool.outstanding[0], "outstanding before response");
+
+        pool.handleWorkerMessageEvent(0, event("{\"id\":1,\"status-code\":499,\"status-message\":\"Client Closed Request\"}"));
+
+        this.checkEquals(0, pool.outstanding[0], "outstanding");
+        this.checkEquals(1, port.messages.size(), "posted");
+
+        pool.stop();
+    }
+
+    @Test
+    public void testBatchResponse() {
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServerWorkerPool pool = BrowserHttpServerWorkerPool.with(port, TestWorker::new, 1);
+        pool.start();
+
+        pool.handleMessageEvent(event("[{\"id\": 1}, {\"id\": 2}]"));
+        pool.handleWorkerMessageEvent(0, event("[{\"id\": 1}, {\"id\": 2}]"));
+
+        this.checkEquals(0, pool.outstanding[0], "outstanding");
+        this.checkEquals(1, port.messages.size(), "posted");
+
+        pool.stop();
+    }
+
+    @Test
+    public void testCoalescedResponses() {
+        final TestMessagePort port = new TestMessagePort();
+        final BrowserHttpServerWorkerPool pool = BrowserHttpServerWorkerPool.with(port, TestWorker::new, 1);
+        pool.start();
+
+        pool.handleMessageEvent(event("{\"id\": 1}"));
+        pool.handleMessageEvent(event("{\"id\": 2}"));
+        pool.handleMessageEvent(event("{\"id\": 3}"));
+
+        pool.handleWorkerMessageEvent(0, event("{\"coalesced\":2,\"responses\":[{\"id\": 1}, {\"id\": 2}]}"));
+
+        this.checkEquals(1, pool.outstanding[0], "outstanding");
+        this.checkEquals(
+            Lists.of("{\"coalesced\":2,\"responses\":[{\"id\": 1}, {\"id\": 2}]}"),
+            port.messages,
+            "responses"
+        );
+
+        pool.stop();
+    }
+
+    @Test
+    public void testResponseCountResponse() {
+        this.responseCountAndCheck("{\"id\":1,\"status-code\":200}", 1);
+    }
+
+    @Test
+    public void testResponseCountBatch() {
+        this.responseCountAndCheck("[{\"id\":1},{\"id\":2}]", 1);
+    }
+
+    @Test
+    public void testResponseCountCoalesced() {
+        this.responseCountAndCheck("{\"coalesced\":3,\"responses\":[{\"id\":1},{\"id\":2},{\"id\":3}]}", 3);
+    }
+
+    @Test
+    public void testResponseCountCoalescedWhitespace() {
+        this.responseCountAndCheck("{\n  \"coalesced\": 12,\n  \"responses\": []\n}", 12);
+    }
+
+    @Test
+    public void testResponseCountCoalescedNotFirst() {
+        this.responseCountAndCheck("{\"id\":1,\"body\":\"{\\\"coalesced\\\":2}\"}", 1);
+    }
+
+    private void responseCountAndCheck(final String data,
+                                       final int expected) {
+        this.checkEquals(
+            expected,
+            BrowserHttpServerWorkerPool.responseCount(data),
+            () -> data
+        );
+    }
+
+    @Test
+    public void testIsAbort() {
+        this.isAbortAndCheck("{\"abort\": 1}", true);
+    }
+
+    @Test
+    public void testIsAbortWhitespace() {
+        this.isAbortAndCheck(" { \"abort\" : \"abc\" } ", true);
+    }
+
+    @Test
+    public void testIsAbortRequest() {
+        this.isAbortAndCheck("{\"id\": 1, \"url\": \"/path1\"}", false);
+    }
+
+    @Test
+    public void testIsAbortRequestBodyMentionsAbort() {
+        this.isAbortAndCheck("{\"url\": \"/path1\", \"body\": \"\\\"abort\\\"\"}", false);
+    }
+
+    @Test
+    public void testIsAbortBatch() {
+        this.isAbortAndCheck("[{\"abort\": 1}]", false);
+    }
+
+    @Test
+    public void testIsAbortInvalidJson() {
+        this.isAbortAndCheck("{\"abort\"", false);
+    }
+
+    private void isAbortAndCheck(final String data,
+                                 final boolean expected) {
+        this.checkEquals(
+            expected,
+            BrowserHttpServerWorkerPool.isAbort(data),
+            () -> data
+        );
+    }
+
+    private static Supplier<Worker> factory(final List<TestWorker> workers) {
+        return () -> {
+            final TestWorker worker = new TestWorker();
+            workers.add(worker);
+            return worker;
+        };
+    }
+
+    private static MessageEvent<String> event(final String data) {
+        final MessageEvent<String> event = new MessageEvent<>("message");
+        event.data = data;
+        return event;
+    }
+
+    /**
+     * Override the native methods that are called so they work in a JVM.
+     */
+    private static class TestWorker extends Worker {
+
+        TestWorker() {
+            super("test-worker.js");
+        }
+
+        @Override
+        public void addEventListener(final String type,
+                                     final EventListener listener,
+                                     final boolean capture) {
+        }
+
+        @Override
+        public void removeEventListener(final String type,
+                                        final EventListener listener) {
+        }
+
+        @Override
+        public void postMessage(final Object message) {
+            this.messages.add(message);
+        }
+
+        @Override
+        public void terminate() {
+            this.terminated = true;
+        }
+
+        final List<Object> messages = Lists.array();
+        boolean terminated;
+    }
+
+    /**
+     * Override the native methods that are called so they work in a JVM.
+     */
+    private static class TestMessagePort extends MessagePort {
+        @Override
+        public void addEventListener(final String type,
+                                     final EventListener listener,
+                                     final boolean capture) {
+        }
+
+        @Override
+        public void removeEventListener(final String type,
+                                        final EventListener listener) {
+        }
+
+        @Override
+        public boolean dispatchEvent(final Event event) {
+            return true;
+        }
+
+        @Override
+        public void start() {
+            this.started = true;
+        }
+
+        @Override
+        public void postMessage(final Object message) {
+            this.messages.add(message);
+        }
+
+        final List<Object> messages = Lists.array();
+        boolean started;
+    }
+
+    @Test
+    public void testToString() {
+        this.toStringAndCheck(
+            BrowserHttpServerWorkerPool.with(new TestMessagePort(), TestWorker::new, 3),
+            "3 workers"
+        );
+    }
+
+    @Override
+    public Class<BrowserHttpServerWorkerPool> type() {
+        return BrowserHttpServerWorkerPool.class;
+    }
+}
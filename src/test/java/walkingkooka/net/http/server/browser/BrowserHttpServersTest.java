@@ -16,21 +16,48 @@
  */
 package walkingkooka.net.http.server.browser;
 
+import org.junit.jupiter.api.Test;
 import walkingkooka.reflect.JavaVisibility;
 import walkingkooka.reflect.PublicStaticHelperTesting;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class BrowserHttpServersTest implements PublicStaticHelperTesting<BrowserHttpServers> {
 
+    @Test
+    public void testIsAbortedNullFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServers.isAborted(null));
+    }
+
+    @Test
+    public void testIsAborted() {
+        final BrowserHttpServerHttpRequest request = BrowserHttpServerHttpRequest.parse("{\"id\": 1, \"url\": \"/path1\"}");
+        this.checkEquals(false, BrowserHttpServers.isAborted(request), "before abort");
+
+        request.abort();
+        this.checkEquals(true, BrowserHttpServers.isAborted(request), "after abort");
+    }
+
+    @Test
+    public void testAbortSignalNullFails() {
+        assertThrows(NullPointerException.class, () -> BrowserHttpServers.abortSignal(null));
+    }
+
     @Override
     public Class<BrowserHttpServers> type() {
         return BrowserHttpServers.class;
     }
 
+    /**
+     * Only factories accepting {@link BrowserHttpServerOptions} have a public type from this package.
+     */
     @Override
     public boolean canHavePublicTypes(final Method method) {
-        return false;
+        return Arrays.asList(method.getParameterTypes())
+            .contains(BrowserHttpServerOptions.class);
     }
 
     @Override